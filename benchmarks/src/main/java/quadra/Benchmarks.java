@@ -0,0 +1,29 @@
+package quadra;
+
+import java.util.SplittableRandom;
+
+final class Benchmarks {
+
+    private Benchmarks() {}
+
+    static Board stackedBoard(int stackHeight, int fullLines, long seed) {
+        return stackedBoard(10, 20, stackHeight, fullLines, seed);
+    }
+
+    static Board stackedBoard(int width, int height, int stackHeight, int fullLines, long seed) {
+        Board board = new Board(width, height);
+        SplittableRandom random = new SplittableRandom(seed);
+        long full = width == Board.MAX_WIDTH ? -1L : (1L << width) - 1;
+        long[] rows = new long[height];
+        byte[] colors = new byte[width * height];
+        for (int i = 0; i < stackHeight + fullLines; i++) {
+            int y = height - 1 - i;
+            boolean solid = i % 2 == 1 && i / 2 < fullLines;
+            rows[y] = solid ? full : full & ~(1L << random.nextInt(width)) & ~(1L << random.nextInt(width));
+            byte color = (byte) (1 + random.nextInt(PieceTable.PIECE_TYPES));
+            for (int x = 0; x < width; x++) if ((rows[y] >>> x & 1) != 0) colors[y * width + x] = color;
+        }
+        board.copyFrom(rows, colors);
+        return board;
+    }
+}
@@ -0,0 +1,85 @@
+package quadra;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+    private static final int QUERIES = 64;
+
+    @State(Scope.Thread)
+    public static class FullLines {
+        @Param({"0", "1", "2", "3", "4"})
+        public int fullLines;
+
+        Board board;
+        long[] templateRows;
+        byte[] templateColors;
+
+        @Setup
+        public void setup() {
+            board = Benchmarks.stackedBoard(8, fullLines, 42);
+            templateRows = new long[board.getHeight()];
+            templateColors = new byte[board.getWidth() * board.getHeight()];
+            board.copyTo(templateRows, templateColors);
+        }
+    }
+
+    @Param({"10x20", "64x4000"})
+    public String size;
+
+    private Board board;
+    private final int[][] queryMasks = new int[QUERIES][];
+    private final int[] queryX = new int[QUERIES];
+    private final int[] queryY = new int[QUERIES];
+    private int query;
+
+    @Setup
+    public void setup() {
+        String[] dimensions = size.split("x");
+        int width = Integer.parseInt(dimensions[0]), height = Integer.parseInt(dimensions[1]);
+        board = Benchmarks.stackedBoard(width, height, 8, 0, 42);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < QUERIES; i++) {
+            int type = 1 + random.nextInt(PieceTable.PIECE_TYPES);
+            int rotation = random.nextInt(PieceTable.ROTATIONS);
+            queryMasks[i] = PieceTable.masks(type, rotation);
+            queryX[i] = random.nextInt(-1, board.getWidth() - 1);
+            queryY[i] = random.nextInt(board.getHeight() - 2);
+        }
+    }
+
+    @Benchmark
+    public boolean checkCollision() {
+        int i = query = (query + 1) & (QUERIES - 1);
+        return board.fits(queryMasks[i], queryX[i], queryY[i]);
+    }
+
+    @Benchmark
+    public void restoreBoard(FullLines state) {
+        state.board.copyFrom(state.templateRows, state.templateColors);
+    }
+
+    @Benchmark
+    public int clearLines(FullLines state) {
+        state.board.copyFrom(state.templateRows, state.templateColors);
+        return state.board.clearFullLines();
+    }
+}
@@ -0,0 +1,63 @@
+package quadra;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineBenchmark {
+
+    private GameEngine game;
+    private Board board;
+    private long[] templateRows;
+    private byte[] templateColors;
+
+    @Setup
+    public void setup() {
+        game = new GameEngine();
+        long seed = 1;
+        game.start(seed);
+        while (game.getCurrentType() == PieceTable.O_PIECE) game.start(++seed);
+
+        board = game.getBoard();
+        Board stack = Benchmarks.stackedBoard(8, 0, 42);
+        templateRows = new long[board.getHeight()];
+        templateColors = new byte[board.getWidth() * board.getHeight()];
+        stack.copyTo(templateRows, templateColors);
+        board.copyFrom(templateRows, templateColors);
+    }
+
+    @Benchmark
+    public int rotate() {
+        return game.input(GameEngine.INPUT_ROTATE);
+    }
+
+    @Benchmark
+    public int ghostPiece() {
+        return game.getGhostY();
+    }
+
+    @Benchmark
+    public int hardDrop() {
+        board.copyFrom(templateRows, templateColors);
+        return game.input(GameEngine.INPUT_HARD_DROP);
+    }
+
+    @Benchmark
+    public int nextPiece() {
+        return game.nextPiece();
+    }
+}
@@ -0,0 +1,39 @@
+package quadra;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RandomizerBenchmark {
+
+    @Param({"bag7", "bag14", "memoryless", "tgm"})
+    public String kind;
+
+    private Randomizer randomizer;
+
+    @Setup
+    public void setup() {
+        randomizer = Randomizer.create(Randomizer.kindOf(kind));
+        randomizer.reset(42);
+    }
+
+    @Benchmark
+    public int next() {
+        return randomizer.next();
+    }
+}
@@ -0,0 +1,85 @@
+package quadra;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StateBenchmark {
+
+    private static final int PLAYED_TICKS = 3000;
+    private static final int ROLLBACK_TICKS = 8;
+
+    @Param({"10x20", "64x4000"})
+    public String size;
+
+    private GameEngine game;
+    private final GameState state = new GameState();
+    private final RollbackBuffer rollback = new RollbackBuffer(ROLLBACK_TICKS);
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 16);
+    private byte[] file;
+
+    @Setup
+    public void setup() throws IOException {
+        String[] dimensions = size.split("x");
+        game = new GameEngine(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+        game.start(42);
+        Controller controller = new BatchRunner.RandomController(42);
+        while (game.getTickCount() < PLAYED_TICKS && !game.isGameOver()) {
+            game.input(controller.nextInput(game));
+            game.tick();
+        }
+        game.save(state);
+        for (int i = 0; i < ROLLBACK_TICKS; i++) rollback.push(game);
+        state.write(out);
+        file = out.toByteArray();
+    }
+
+    @Benchmark
+    public GameState save() {
+        game.save(state);
+        return state;
+    }
+
+    @Benchmark
+    public GameEngine restore() {
+        game.restore(state);
+        return game;
+    }
+
+    @Benchmark
+    public GameEngine rollback() {
+        rollback.push(game);
+        rollback.rewind(game, game.getTickCount());
+        return game;
+    }
+
+    @Benchmark
+    public int write() throws IOException {
+        out.reset();
+        state.write(out);
+        return out.size();
+    }
+
+    @Benchmark
+    public GameState read() throws IOException {
+        return GameState.read(new ByteArrayInputStream(file));
+    }
+}
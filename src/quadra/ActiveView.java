@@ -0,0 +1,50 @@
+package quadra;
+
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Toolkit;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.image.BufferStrategy;
+
+public class ActiveView extends Canvas {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Quadra quadra;
+
+    public ActiveView(Quadra quadra) {
+        this.quadra = quadra;
+        setPreferredSize(quadra.getPreferredSize());
+        setBackground(Color.BLACK);
+        setIgnoreRepaint(true);
+        setFocusable(true);
+        quadra.attachInput(this);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                quadra.redrawAll();
+            }
+        });
+    }
+
+    public void renderFrame() {
+        BufferStrategy strategy = getBufferStrategy();
+        if (strategy == null || !isDisplayable()) return;
+        do {
+            do {
+                Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    g.setColor(Color.BLACK);
+                    g.fillRect(0, 0, getWidth(), getHeight());
+                    quadra.render(g, getWidth(), getHeight());
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+}
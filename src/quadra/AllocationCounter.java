@@ -0,0 +1,63 @@
+package quadra;
+
+import java.lang.management.ManagementFactory;
+
+public class AllocationCounter {
+
+    private final com.sun.management.ThreadMXBean threads;
+    private final long overhead;
+
+    private long threadId;
+    private long start;
+    private long lastBytes;
+    private long totalBytes;
+    private long samples;
+
+    public AllocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+            long id = Thread.currentThread().getId();
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < 16; i++) {
+                long a = threads.getThreadAllocatedBytes(id);
+                long b = threads.getThreadAllocatedBytes(id);
+                min = Math.min(min, b - a);
+            }
+            overhead = min;
+        } else {
+            threads = null;
+            overhead = 0;
+        }
+    }
+
+    public boolean isSupported() { return threads != null; }
+
+    public void begin() {
+        if (threads == null) return;
+        threadId = Thread.currentThread().getId();
+        start = threads.getThreadAllocatedBytes(threadId);
+    }
+
+    public void end() {
+        if (threads == null) return;
+        lastBytes = Math.max(0, threads.getThreadAllocatedBytes(threadId) - start - overhead);
+        totalBytes += lastBytes;
+        samples++;
+    }
+
+    public long getLastBytes() { return lastBytes; }
+    public long getTotalBytes() { return totalBytes; }
+    public long getSamples() { return samples; }
+
+    public double getAverageBytes() {
+        return samples == 0 ? 0 : (double) totalBytes / samples;
+    }
+
+    public void reset() {
+        totalBytes = 0;
+        samples = 0;
+    }
+}
@@ -0,0 +1,180 @@
+package quadra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.stream.IntStream;
+
+public class BatchRunner {
+
+    public static final long DEFAULT_MAX_TICKS = 360_000;
+
+    public static final class Stats {
+        private final LongAdder games = new LongAdder();
+        private final LongAdder ticks = new LongAdder();
+        private final LongAdder score = new LongAdder();
+        private final LongAdder lines = new LongAdder();
+        private final LongAdder levels = new LongAdder();
+        private final LongAdder combos = new LongAdder();
+        private final LongAccumulator bestScore = new LongAccumulator(Math::max, 0);
+        private final LongAccumulator bestLines = new LongAccumulator(Math::max, 0);
+        private final LongAccumulator bestLevel = new LongAccumulator(Math::max, 0);
+        private final LongAccumulator bestCombo = new LongAccumulator(Math::max, 0);
+        private final LongAdder plans = new LongAdder();
+        private final LongAdder planNanos = new LongAdder();
+        private final LongAccumulator maxPlanNanos = new LongAccumulator(Math::max, 0);
+
+        void record(GameEngine game) {
+            games.increment();
+            ticks.add(game.getTickCount());
+            score.add(game.getScore());
+            lines.add(game.getLinesCleared());
+            levels.add(game.getLevel());
+            combos.add(game.getMaxCombo());
+            bestScore.accumulate(game.getScore());
+            bestLines.accumulate(game.getLinesCleared());
+            bestLevel.accumulate(game.getLevel());
+            bestCombo.accumulate(game.getMaxCombo());
+        }
+
+        void recordPlans(BeamSearchAI ai) {
+            plans.add(ai.getPlans());
+            planNanos.add(ai.getPlanNanos());
+            maxPlanNanos.accumulate(ai.getMaxPlanNanos());
+        }
+
+        public long getGames() { return games.sum(); }
+        public long getTicks() { return ticks.sum(); }
+        public long getTotalScore() { return score.sum(); }
+        public long getTotalLines() { return lines.sum(); }
+        public long getBestScore() { return bestScore.get(); }
+        public long getBestLines() { return bestLines.get(); }
+        public long getBestLevel() { return bestLevel.get(); }
+        public long getBestCombo() { return bestCombo.get(); }
+        public long getPlans() { return plans.sum(); }
+        public long getMaxPlanNanos() { return maxPlanNanos.get(); }
+
+        public double getAveragePlanNanos() {
+            long n = plans.sum();
+            return n == 0 ? 0 : (double) planNanos.sum() / n;
+        }
+
+        private double average(LongAdder adder) {
+            long n = games.sum();
+            return n == 0 ? 0 : (double) adder.sum() / n;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("games=%d ticks=%d avgScore=%.1f avgLines=%.2f avgLevel=%.2f avgMaxCombo=%.2f "
+                    + "bestScore=%d bestLines=%d bestLevel=%d bestCombo=%d",
+                    getGames(), getTicks(), average(score), average(lines), average(levels), average(combos),
+                    getBestScore(), getBestLines(), getBestLevel(), getBestCombo());
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final int randomizer;
+
+    public BatchRunner(int parallelism) {
+        this(parallelism, Randomizer.BAG_7);
+    }
+
+    public BatchRunner(int parallelism, int randomizer) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.randomizer = randomizer;
+    }
+
+    public Stats run(int games, long baseSeed, LongFunction<Controller> controllers, long maxTicks)
+            throws InterruptedException {
+        Stats stats = new Stats();
+        try {
+            pool.submit(() -> IntStream.range(0, games).parallel().forEach(i -> {
+                long seed = gameSeed(baseSeed, i);
+                Controller controller = controllers.apply(seed);
+                stats.record(play(seed, randomizer, controller, maxTicks));
+                if (controller instanceof BeamSearchAI) stats.recordPlans((BeamSearchAI) controller);
+            })).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("batch run failed", e.getCause());
+        }
+        return stats;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public static GameEngine play(long seed, Controller controller, long maxTicks) {
+        return play(seed, Randomizer.BAG_7, controller, maxTicks);
+    }
+
+    public static GameEngine play(long seed, int randomizer, Controller controller, long maxTicks) {
+        GameEngine game = new GameEngine();
+        game.setRandomizer(randomizer);
+        game.start(seed);
+        while (!game.isGameOver() && game.getTickCount() < maxTicks) {
+            game.input(controller.nextInput(game));
+            game.tick();
+        }
+        return game;
+    }
+
+    public static long gameSeed(long baseSeed, int index) {
+        long z = baseSeed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    static final class RandomController implements Controller {
+        private final SplittableRandom random;
+
+        RandomController(long seed) {
+            this.random = new SplittableRandom(seed);
+        }
+
+        @Override
+        public int nextInput(GameEngine game) {
+            return random.nextInt(GameEngine.INPUT_HOLD + 1);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        List<String> positional = new ArrayList<>(Arrays.asList(args));
+        boolean ai = positional.remove("--ai");
+        int randomizerArg = positional.indexOf("--randomizer");
+        int randomizer = Randomizer.BAG_7;
+        if (randomizerArg >= 0) {
+            randomizer = Randomizer.kindOf(positional.remove(randomizerArg + 1));
+            positional.remove(randomizerArg);
+        }
+        int games = positional.size() > 0 ? Integer.parseInt(positional.get(0)) : ai ? 100 : 100_000;
+        int threads = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : Runtime.getRuntime().availableProcessors();
+        long seed = positional.size() > 2 ? Long.parseLong(positional.get(2)) : 0;
+        long maxTicks = positional.size() > 3 ? Long.parseLong(positional.get(3)) : DEFAULT_MAX_TICKS;
+
+        BatchRunner runner = new BatchRunner(threads, randomizer);
+        long start = System.nanoTime();
+        Stats stats = runner.run(games, seed, ai ? s -> new BeamSearchAI() : RandomController::new, maxTicks);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        runner.shutdown();
+
+        System.out.println(stats);
+        System.out.printf("%d threads, %.2f s, %.0f games/s, %.0f ticks/s%n",
+                threads, seconds, stats.getGames() / seconds, stats.getTicks() / seconds);
+        if (stats.getPlans() > 0) {
+            // from level 9 on pieces fall one row per gravity interval, so the AI has to decide within it
+            int budget = GameEngine.dropInterval(20);
+            double max = stats.getMaxPlanNanos() / 1e6;
+            System.out.printf("ai: %d plans, avg %.3f ms, max %.3f ms, gravity interval at level 20 %d ms%s%n",
+                    stats.getPlans(), stats.getAveragePlanNanos() / 1e6, max, budget, max > budget ? " (OVER)" : "");
+        }
+    }
+}
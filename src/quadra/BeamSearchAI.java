@@ -0,0 +1,221 @@
+package quadra;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+public class BeamSearchAI implements Controller {
+
+    public static final int DEFAULT_BEAM_WIDTH = 12;
+
+    private static final double HEIGHT_WEIGHT = -0.510066;
+    static final double LINES_WEIGHT = 0.760666;
+    private static final double HOLES_WEIGHT = -0.35663;
+    private static final double BUMPINESS_WEIGHT = -0.184483;
+
+    // with and without hold, every rotation, every column from -3 to the right wall
+    static final int MAX_CANDIDATES = 2 * PieceTable.ROTATIONS * (Board.MAX_WIDTH + 4);
+
+    // a candidate move packed into an int: x and rotatedX offset by 8, final rotation, rotations pressed, lines cleared, hold
+    private static int pack(boolean hold, int rotations, int rotation, int rotatedX, int x, int lines) {
+        return (hold ? 1 << 23 : 0) | lines << 20 | rotations << 18 | rotation << 16 | (rotatedX + 8) << 8 | (x + 8);
+    }
+
+    private static int x(int move) { return (move & 0xFF) - 8; }
+    private static int rotatedX(int move) { return (move >> 8 & 0xFF) - 8; }
+    private static int rotation(int move) { return move >> 16 & 3; }
+    private static int rotations(int move) { return move >> 18 & 3; }
+    private static int lines(int move) { return move >> 20 & 7; }
+    static boolean hold(int move) { return (move & 1 << 23) != 0; }
+
+    // search state for one thread: base is the position being expanded, every candidate lands on a copy of it in work
+    private static final class Worker {
+        final Board base;
+        final Board work;
+        final int[] moves = new int[MAX_CANDIDATES];
+        final double[] scores = new double[MAX_CANDIDATES];
+        int count;
+
+        Worker(int width, int height) {
+            base = new Board(width, height);
+            work = new Board(width, height);
+        }
+
+        void expand(int type, int rotation, int x, int y, boolean hold) {
+            int[] masks = PieceTable.masks(type, rotation);
+            if (!base.fits(masks, x, y)) return;
+            int turns = type == PieceTable.O_PIECE ? 1 : PieceTable.ROTATIONS;
+            int rx = x;
+            int r = rotation;
+            for (int n = 0; n < turns; n++) {
+                if (n > 0) {
+                    int nr = PieceTable.nextRotation(r);
+                    int kx = kick(base, PieceTable.masks(type, nr), rx, y);
+                    if (kx == Integer.MIN_VALUE) break;
+                    rx = kx;
+                    r = nr;
+                }
+                int[] m = PieceTable.masks(type, r);
+                add(type, m, hold, n, r, rx, rx, y);
+                for (int tx = rx - 1; base.fits(m, tx, y); tx--) add(type, m, hold, n, r, rx, tx, y);
+                for (int tx = rx + 1; base.fits(m, tx, y); tx++) add(type, m, hold, n, r, rx, tx, y);
+            }
+        }
+
+        private void add(int type, int[] masks, boolean hold, int rotations, int rotation, int rotatedX, int x, int y) {
+            work.copyFrom(base);
+            work.place(masks, x, base.landingY(masks, x, y), type);
+            int lines = work.clearFullLines();
+            moves[count] = pack(hold, rotations, rotation, rotatedX, x, lines);
+            scores[count++] = evaluate(work, lines);
+        }
+    }
+
+    private final int beamWidth;
+    private final ForkJoinPool pool;
+    private Worker[] workers = new Worker[0];
+    private final int[] beam;
+    private final double[] beamScores;
+    private final double[] totals;
+
+    private final int[] plan = new int[PieceTable.ROTATIONS + Board.MAX_WIDTH + 2];
+    private int planLength;
+    private int planIndex;
+    private long plannedPiece = -1;
+    private long plans;
+    private long planNanos;
+    private long maxPlanNanos;
+
+    public BeamSearchAI() {
+        this(DEFAULT_BEAM_WIDTH, null);
+    }
+
+    public BeamSearchAI(int beamWidth, ForkJoinPool pool) {
+        this.beamWidth = beamWidth;
+        this.pool = pool;
+        this.beam = new int[beamWidth];
+        this.beamScores = new double[beamWidth];
+        this.totals = new double[beamWidth];
+    }
+
+    public long getPlans() { return plans; }
+    public long getPlanNanos() { return planNanos; }
+    public long getMaxPlanNanos() { return maxPlanNanos; }
+
+    @Override
+    public int nextInput(GameEngine game) {
+        if (game.isGameOver()) return GameEngine.INPUT_NONE;
+        if (plannedPiece != game.getPieceCount() || planIndex >= planLength) {
+            long start = System.nanoTime();
+            planFor(game);
+            long nanos = System.nanoTime() - start;
+            plans++;
+            planNanos += nanos;
+            maxPlanNanos = Math.max(maxPlanNanos, nanos);
+        }
+        int input = plan[planIndex++];
+        if (input == GameEngine.INPUT_HOLD) plannedPiece = game.getPieceCount() + 1;
+        return input;
+    }
+
+    private void planFor(GameEngine game) {
+        plannedPiece = game.getPieceCount();
+        planIndex = 0;
+        planLength = 0;
+        int best = choose(game);
+        if (best < 0) {
+            plan[planLength++] = GameEngine.INPUT_HARD_DROP;
+            return;
+        }
+        if (hold(best)) plan[planLength++] = GameEngine.INPUT_HOLD;
+        for (int i = 0; i < rotations(best); i++) plan[planLength++] = GameEngine.INPUT_ROTATE;
+        for (int x = rotatedX(best); x < x(best); x++) plan[planLength++] = GameEngine.INPUT_RIGHT;
+        for (int x = rotatedX(best); x > x(best); x--) plan[planLength++] = GameEngine.INPUT_LEFT;
+        plan[planLength++] = GameEngine.INPUT_HARD_DROP;
+    }
+
+    // the packed best move, or -1 if the piece cannot go anywhere
+    int choose(GameEngine game) {
+        Board board = game.getBoard();
+        int width = board.getWidth();
+        int workerCount = pool == null ? 1 : Math.max(1, Math.min(beamWidth, pool.getParallelism()));
+        if (workers.length < workerCount || workers[0].base.getWidth() != width || workers[0].base.getHeight() != board.getHeight()) {
+            workers = new Worker[workerCount];
+            for (int i = 0; i < workerCount; i++) workers[i] = new Worker(width, board.getHeight());
+        }
+
+        Worker first = workers[0];
+        first.base.copyFrom(board);
+        first.count = 0;
+        int current = game.getCurrentType();
+        int next = game.getNextType();
+        int held = game.getHoldType() == 0 ? next : game.getHoldType();
+        first.expand(current, game.getCurrentRotation(), game.getX(), game.getY(), false);
+        if (game.canHold()) first.expand(held, 0, GameEngine.spawnX(width), game.getSpawnY(), true);
+        if (first.count == 0) return -1;
+
+        // the beamWidth best first moves, equal scores kept in the order they were generated
+        int size = 0;
+        for (int i = 0; i < first.count; i++) {
+            double score = first.scores[i];
+            if (size == beamWidth && score <= beamScores[size - 1]) continue;
+            int j = Math.min(size, beamWidth - 1);
+            for (; j > 0 && beamScores[j - 1] < score; j--) {
+                beam[j] = beam[j - 1];
+                beamScores[j] = beamScores[j - 1];
+            }
+            beam[j] = first.moves[i];
+            beamScores[j] = score;
+            if (size < beamWidth) size++;
+        }
+
+        int beamSize = size;
+        if (pool == null) {
+            for (int i = 0; i < beamSize; i++) totals[i] = follow(first, game, beam[i]);
+        } else {
+            int stride = Math.min(workerCount, beamSize);
+            Worker[] pooled = workers;
+            pool.submit(() -> IntStream.range(0, stride).parallel().forEach(w -> {
+                for (int i = w; i < beamSize; i += stride) totals[i] = follow(pooled[w], game, beam[i]);
+            })).join();
+        }
+
+        int bestIndex = 0;
+        for (int i = 1; i < beamSize; i++) if (totals[i] > totals[bestIndex]) bestIndex = i;
+        return beam[bestIndex];
+    }
+
+    // plays move on the game's board, then scores the best landing of the piece that spawns after it
+    private static double follow(Worker worker, GameEngine game, int move) {
+        boolean emptyHold = game.getHoldType() == 0;
+        int type = !hold(move) ? game.getCurrentType() : emptyHold ? game.getNextType() : game.getHoldType();
+        // holding into an empty slot spawns the next piece, so the one after it follows
+        int follower = hold(move) && emptyHold ? game.getNextType(1) : game.getNextType();
+        Board base = worker.base;
+        base.copyFrom(game.getBoard());
+        int[] masks = PieceTable.masks(type, rotation(move));
+        int y = hold(move) ? game.getSpawnY() : game.getY();
+        base.place(masks, x(move), base.landingY(masks, x(move), y), type);
+        base.clearFullLines();
+
+        worker.count = 0;
+        worker.expand(follower, 0, GameEngine.spawnX(base.getWidth()), GameEngine.spawnY(base), false);
+        double best = -1e9;
+        for (int i = 0; i < worker.count; i++) best = Math.max(best, worker.scores[i]);
+        return lines(move) * LINES_WEIGHT + best;
+    }
+
+    static double evaluate(Board board, int lines) {
+        int bumpiness = 0;
+        for (int x = 1; x < board.getWidth(); x++) bumpiness += Math.abs(board.getColumnHeight(x) - board.getColumnHeight(x - 1));
+        return HEIGHT_WEIGHT * board.getAggregateHeight() + LINES_WEIGHT * lines + HOLES_WEIGHT * board.getHoleCount()
+                + BUMPINESS_WEIGHT * bumpiness;
+    }
+
+    // the same one-column kicks GameEngine.rotate tries
+    private static int kick(Board board, int[] rotated, int x, int y) {
+        if (board.fits(rotated, x, y)) return x;
+        if (board.fits(rotated, x - 1, y)) return x - 1;
+        if (board.fits(rotated, x + 1, y)) return x + 1;
+        return Integer.MIN_VALUE;
+    }
+}
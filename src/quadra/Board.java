@@ -0,0 +1,256 @@
+package quadra;
+
+import java.util.Arrays;
+
+public class Board {
+
+    public static final int MAX_WIDTH = 64;
+    public static final int MAX_HEIGHT = 1 << 16;
+
+    private final int width;
+    private final int height;
+    private final long fullRow;
+    private final long[] rows;
+    private final byte[] colors;
+    private long version;
+
+    private final int[] heights;
+    private int heightSum;
+    private int cellCount;
+    private int stackTop;
+    private int touchedTop = -1;
+    private int touchedBottom = -1;
+
+    public Board(int width, int height) {
+        checkSize(width, height);
+        this.width = width;
+        this.height = height;
+        this.fullRow = width == MAX_WIDTH ? -1L : (1L << width) - 1;
+        this.rows = new long[height];
+        this.colors = new byte[width * height];
+        this.heights = new int[width];
+        this.stackTop = height;
+    }
+
+    public static void checkSize(int width, int height) {
+        if (width < 4 || width > MAX_WIDTH) throw new IllegalArgumentException("width must be 4.." + MAX_WIDTH + ": " + width);
+        if (height < 4 || height > MAX_HEIGHT) throw new IllegalArgumentException("height must be 4.." + MAX_HEIGHT + ": " + height);
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public long getVersion() { return version; }
+    public int getColumnHeight(int x) { return heights[x]; }
+    public int getAggregateHeight() { return heightSum; }
+    public int getHoleCount() { return heightSum - cellCount; }
+    // every row above this one is empty
+    public int getStackTop() { return stackTop; }
+
+    public void clear() {
+        Arrays.fill(rows, 0);
+        Arrays.fill(colors, (byte) 0);
+        Arrays.fill(heights, 0);
+        heightSum = 0;
+        cellCount = 0;
+        stackTop = height;
+        touchedTop = touchedBottom = -1;
+        version++;
+    }
+
+    public void copyTo(long[] rowsOut, byte[] colorsOut) {
+        copyRows(0, rowsOut, colorsOut);
+    }
+
+    public void copyRows(int from, long[] rowsOut, byte[] colorsOut) {
+        System.arraycopy(rows, from, rowsOut, 0, rowsOut.length);
+        System.arraycopy(colors, from * width, colorsOut, 0, rowsOut.length * width);
+    }
+
+    public void copyFrom(long[] rowsIn, byte[] colorsIn) {
+        System.arraycopy(rowsIn, 0, rows, 0, height);
+        System.arraycopy(colorsIn, 0, colors, 0, colors.length);
+        stackTop = 0;
+        while (stackTop < height && rows[stackTop] == 0) stackTop++;
+        recomputeFeatures();
+        touchedTop = 0;
+        touchedBottom = height - 1;
+        version++;
+    }
+
+    // copies a board of the same size, touching only the rows either stack occupies
+    public void copyFrom(Board other) {
+        if (other.width != width || other.height != height)
+            throw new IllegalArgumentException("board size " + other.width + "x" + other.height + " != " + width + "x" + height);
+        int from = Math.min(stackTop, other.stackTop);
+        System.arraycopy(other.rows, from, rows, from, height - from);
+        System.arraycopy(other.colors, from * width, colors, from * width, (height - from) * width);
+        System.arraycopy(other.heights, 0, heights, 0, width);
+        heightSum = other.heightSum;
+        cellCount = other.cellCount;
+        stackTop = other.stackTop;
+        touchedTop = touchedBottom = -1;
+        version++;
+    }
+
+    // copies only the rows from the stack top down, at the same indexes; returns the stack top
+    public int saveStack(long[] rowsOut, byte[] colorsOut) {
+        System.arraycopy(rows, stackTop, rowsOut, stackTop, height - stackTop);
+        System.arraycopy(colors, stackTop * width, colorsOut, stackTop * width, (height - stackTop) * width);
+        return stackTop;
+    }
+
+    public void restoreStack(int top, long[] rowsIn, byte[] colorsIn) {
+        int from = Math.min(stackTop, top);
+        Arrays.fill(rows, from, top, 0);
+        Arrays.fill(colors, from * width, top * width, (byte) 0);
+        System.arraycopy(rowsIn, top, rows, top, height - top);
+        System.arraycopy(colorsIn, top * width, colors, top * width, (height - top) * width);
+        stackTop = top;
+        recomputeFeatures();
+        touchedTop = touchedBottom = -1;
+        version++;
+    }
+
+    public long getRow(int y) { return rows[y]; }
+
+    public int get(int x, int y) { return colors[y * width + x]; }
+
+    public boolean isRowFull(int y) { return rows[y] == fullRow; }
+
+    public boolean fits(int[] shapeRows, int x, int y) {
+        for (int i = 0; i < shapeRows.length; i++) {
+            int mask = shapeRows[i];
+            if (mask == 0) continue;
+            int boardY = y + i;
+            if (boardY >= height) return false;
+            if (x + Integer.numberOfTrailingZeros(mask) < 0) return false;
+            if (x + 31 - Integer.numberOfLeadingZeros(mask) >= width) return false;
+            if (boardY >= 0 && (rows[boardY] & shift(mask, x)) != 0) return false;
+        }
+        return true;
+    }
+
+    public int landingY(int[] shapeRows, int x, int y) {
+        int landing = Integer.MAX_VALUE;
+        long seen = 0;
+        for (int i = shapeRows.length - 1; i >= 0; i--) {
+            long bits = shift(shapeRows[i], x) & ~seen;
+            seen |= bits;
+            while (bits != 0) {
+                int column = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                int top = height - heights[column];
+                if (y + i >= top) return scanLandingY(shapeRows, x, y);
+                landing = Math.min(landing, top - 1 - i);
+            }
+        }
+        return landing == Integer.MAX_VALUE ? y : landing;
+    }
+
+    private int scanLandingY(int[] shapeRows, int x, int y) {
+        while (fits(shapeRows, x, y + 1)) y++;
+        return y;
+    }
+
+    public void place(int[] shapeRows, int x, int y, int color) {
+        touchedTop = touchedBottom = -1;
+        for (int i = 0; i < shapeRows.length; i++) {
+            int boardY = y + i;
+            if (shapeRows[i] == 0 || boardY < 0) continue;
+            long bits = shift(shapeRows[i], x);
+            int added = Long.bitCount(bits & ~rows[boardY]);
+            rows[boardY] |= bits;
+            cellCount += added;
+            if (touchedTop < 0) touchedTop = boardY;
+            touchedBottom = boardY;
+            stackTop = Math.min(stackTop, boardY);
+            int base = boardY * width;
+            while (bits != 0) {
+                int column = Long.numberOfTrailingZeros(bits);
+                colors[base + column] = (byte) color;
+                if (height - boardY > heights[column]) {
+                    heightSum += height - boardY - heights[column];
+                    heights[column] = height - boardY;
+                }
+                bits &= bits - 1;
+            }
+        }
+        version++;
+    }
+
+    public int clearFullLines() {
+        return clearFullLines(null);
+    }
+
+    public int clearFullLines(int[] clearedOut) {
+        if (touchedTop < 0) return 0;
+        int lines = 0;
+        for (int y = touchedBottom; y >= touchedTop; y--) if (rows[y] == fullRow) {
+            if (clearedOut != null && lines < clearedOut.length) clearedOut[lines] = y;
+            lines++;
+        }
+        int bottom = touchedBottom;
+        touchedTop = touchedBottom = -1;
+        if (lines == 0) return 0;
+
+        int dst = bottom;
+        for (int src = bottom; src >= stackTop; src--) {
+            if (rows[src] == fullRow) continue;
+            if (dst != src) {
+                rows[dst] = rows[src];
+                System.arraycopy(colors, src * width, colors, dst * width, width);
+            }
+            dst--;
+        }
+        Arrays.fill(rows, stackTop, dst + 1, 0);
+        Arrays.fill(colors, stackTop * width, (dst + 1) * width, (byte) 0);
+        stackTop = dst + 1;
+
+        cellCount -= lines * width;
+        for (int column = 0; column < width; column++) {
+            long bit = 1L << column;
+            int top = height - heights[column] + lines;
+            while (top < height && (rows[top] & bit) == 0) top++;
+            heightSum += height - top - heights[column];
+            heights[column] = height - top;
+        }
+        version++;
+        return lines;
+    }
+
+    public boolean addGarbage(int lines, int hole, int color) {
+        lines = Math.min(lines, height);
+        boolean overflow = false;
+        for (int y = stackTop; y < lines; y++) overflow |= rows[y] != 0;
+        int from = Math.max(stackTop, lines);
+        System.arraycopy(rows, from, rows, from - lines, height - from);
+        System.arraycopy(colors, from * width, colors, (from - lines) * width, (height - from) * width);
+        stackTop = from - lines;
+        long garbage = fullRow & ~(1L << hole);
+        for (int y = height - lines; y < height; y++) {
+            rows[y] = garbage;
+            int base = y * width;
+            for (int x = 0; x < width; x++) colors[base + x] = x == hole ? 0 : (byte) color;
+        }
+        recomputeFeatures();
+        touchedTop = touchedBottom = -1;
+        version++;
+        return overflow;
+    }
+
+    private void recomputeFeatures() {
+        heightSum = 0;
+        cellCount = 0;
+        for (int y = stackTop; y < height; y++) cellCount += Long.bitCount(rows[y]);
+        for (int column = 0; column < width; column++) {
+            int top = stackTop;
+            while (top < height && (rows[top] & 1L << column) == 0) top++;
+            heights[column] = height - top;
+            heightSum += heights[column];
+        }
+    }
+
+    private static long shift(int mask, int x) {
+        return x >= 0 ? (long) mask << x : mask >>> -x;
+    }
+}
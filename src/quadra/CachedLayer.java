@@ -0,0 +1,84 @@
+package quadra;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.VolatileImage;
+
+public class CachedLayer {
+
+    public interface Painter {
+        void paint(Graphics2D g);
+    }
+
+    private final int logicalWidth;
+    private final int logicalHeight;
+    private final int transparency;
+    private final Painter painter;
+
+    private VolatileImage image;
+    private double scale;
+    private long key = Long.MIN_VALUE;
+    private int renders;
+
+    public CachedLayer(int logicalWidth, int logicalHeight, boolean translucent, Painter painter) {
+        this.logicalWidth = logicalWidth;
+        this.logicalHeight = logicalHeight;
+        this.transparency = translucent ? Transparency.TRANSLUCENT : Transparency.OPAQUE;
+        this.painter = painter;
+    }
+
+    public void invalidate() {
+        key = Long.MIN_VALUE;
+    }
+
+    public int getRenderCount() { return renders; }
+
+    public void draw(Graphics2D target, int x, int y, double scale, long key) {
+        GraphicsConfiguration gc = target.getDeviceConfiguration();
+        int width = Math.max(1, (int) Math.ceil(logicalWidth * scale));
+        int height = Math.max(1, (int) Math.ceil(logicalHeight * scale));
+        do {
+            boolean stale = key != this.key || scale != this.scale;
+            if (image == null || image.getWidth() != width || image.getHeight() != height) {
+                if (image != null) image.flush();
+                image = gc.createCompatibleVolatileImage(width, height, transparency);
+                stale = true;
+            } else {
+                int status = image.validate(gc);
+                if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                    image.flush();
+                    image = gc.createCompatibleVolatileImage(width, height, transparency);
+                    stale = true;
+                } else if (status == VolatileImage.IMAGE_RESTORED) {
+                    stale = true;
+                }
+            }
+            if (stale) {
+                render(scale);
+                this.key = key;
+                this.scale = scale;
+            }
+            target.drawImage(image, x, y, null);
+        } while (image.contentsLost());
+    }
+
+    private void render(double scale) {
+        Graphics2D g = image.createGraphics();
+        try {
+            if (transparency != Transparency.OPAQUE) {
+                g.setComposite(AlphaComposite.Clear);
+                g.fillRect(0, 0, image.getWidth(), image.getHeight());
+                g.setComposite(AlphaComposite.SrcOver);
+            }
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.scale(scale, scale);
+            painter.paint(g);
+        } finally {
+            g.dispose();
+        }
+        renders++;
+    }
+}
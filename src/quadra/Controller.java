@@ -0,0 +1,6 @@
+package quadra;
+
+public interface Controller {
+
+    int nextInput(GameEngine game);
+}
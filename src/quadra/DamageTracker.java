@@ -0,0 +1,66 @@
+package quadra;
+
+// Dirty rectangles in panel coordinates, collected over one timer tick. Overlapping rectangles are merged;
+// past MAX_RECTS everything collapses into one bounding box, and markAll() means the whole panel.
+public class DamageTracker {
+
+    static final int MAX_RECTS = 8;
+
+    private final int[] left = new int[MAX_RECTS];
+    private final int[] top = new int[MAX_RECTS];
+    private final int[] right = new int[MAX_RECTS];
+    private final int[] bottom = new int[MAX_RECTS];
+    private int count;
+    private boolean all;
+
+    public void markAll() { all = true; }
+    public boolean isAll() { return all; }
+    public boolean isEmpty() { return !all && count == 0; }
+    public int size() { return count; }
+    public int getX(int i) { return left[i]; }
+    public int getY(int i) { return top[i]; }
+    public int getWidth(int i) { return right[i] - left[i]; }
+    public int getHeight(int i) { return bottom[i] - top[i]; }
+
+    public void clear() {
+        count = 0;
+        all = false;
+    }
+
+    public void add(int x, int y, int width, int height) {
+        if (all || width <= 0 || height <= 0) return;
+        int x1 = x + width, y1 = y + height;
+        for (int i = 0; i < count; i++) {
+            if (x > right[i] || x1 < left[i] || y > bottom[i] || y1 < top[i]) continue;
+            x = Math.min(x, left[i]);
+            y = Math.min(y, top[i]);
+            x1 = Math.max(x1, right[i]);
+            y1 = Math.max(y1, bottom[i]);
+            remove(i);
+            add(x, y, x1 - x, y1 - y);
+            return;
+        }
+        if (count == MAX_RECTS) {
+            for (int i = 0; i < count; i++) {
+                x = Math.min(x, left[i]);
+                y = Math.min(y, top[i]);
+                x1 = Math.max(x1, right[i]);
+                y1 = Math.max(y1, bottom[i]);
+            }
+            count = 0;
+        }
+        left[count] = x;
+        top[count] = y;
+        right[count] = x1;
+        bottom[count] = y1;
+        count++;
+    }
+
+    private void remove(int i) {
+        count--;
+        left[i] = left[count];
+        top[i] = top[count];
+        right[i] = right[count];
+        bottom[i] = bottom[count];
+    }
+}
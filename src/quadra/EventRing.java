@@ -0,0 +1,93 @@
+package quadra;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Single producer, preallocated and lossy: a consumer that falls more than capacity behind skips ahead and counts the
+// overwritten events as dropped, so the producer never waits. Events are an int type with four int payload slots
+// (see GameEngine); anything that must not be lost, like the end of a game, needs its own channel.
+public class EventRing {
+
+    public interface Handler {
+        void onEvent(int type, int a, int b, int c, int d, long tick);
+    }
+
+    public final class Consumer {
+        private long next;
+        // written only by the polling thread, read by the performance overlay
+        private volatile long dropped;
+
+        private Consumer(long next) {
+            this.next = next;
+        }
+
+        public int poll(Handler handler, int maxBatch) {
+            long available = cursor.get();
+            if (available - next > capacity) {
+                dropped += available - capacity - next;
+                next = available - capacity;
+            }
+            int handled = 0;
+            while (next < available && handled < maxBatch) {
+                long sequence = next++;
+                int slot = (int) (sequence & mask);
+                if (published.get(slot) != sequence) { dropped++; continue; }
+                int type = types[slot], a = as[slot], b = bs[slot], c = cs[slot], d = ds[slot];
+                long tick = ticks[slot];
+                // seqlock read: the plain loads above must complete before the slot is checked again
+                VarHandle.acquireFence();
+                if (published.get(slot) != sequence) { dropped++; continue; }
+                handler.onEvent(type, a, b, c, d, tick);
+                handled++;
+            }
+            return handled;
+        }
+
+        public long getDropped() { return dropped; }
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final int[] types;
+    private final int[] as;
+    private final int[] bs;
+    private final int[] cs;
+    private final int[] ds;
+    private final long[] ticks;
+    private final AtomicLongArray published;
+    private final AtomicLong cursor = new AtomicLong();
+
+    public EventRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.types = new int[capacity];
+        this.as = new int[capacity];
+        this.bs = new int[capacity];
+        this.cs = new int[capacity];
+        this.ds = new int[capacity];
+        this.ticks = new long[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) published.set(i, -1);
+    }
+
+    public Consumer newConsumer() {
+        return new Consumer(cursor.get());
+    }
+
+    public void publish(int type, int a, int b, int c, int d, long tick) {
+        long sequence = cursor.get();
+        int slot = (int) (sequence & mask);
+        published.set(slot, -1);
+        VarHandle.storeStoreFence();
+        types[slot] = type;
+        as[slot] = a;
+        bs[slot] = b;
+        cs[slot] = c;
+        ds[slot] = d;
+        ticks[slot] = tick;
+        published.lazySet(slot, sequence);
+        cursor.lazySet(sequence + 1);
+    }
+}
@@ -0,0 +1,445 @@
+package quadra;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public class GameEngine {
+
+    public static final int TICK_MILLIS = 10;
+
+    public static final int INPUT_NONE = 0;
+    public static final int INPUT_LEFT = 1;
+    public static final int INPUT_RIGHT = 2;
+    public static final int INPUT_SOFT_DROP = 3;
+    public static final int INPUT_ROTATE = 4;
+    public static final int INPUT_HARD_DROP = 5;
+    public static final int INPUT_HOLD = 6;
+
+    // EventRing payloads (a, b, c, d): MOVE type, x, y; ROTATE type, rotation; HOLD held, current;
+    // HARD_DROP and LOCK type, x, y; CLEAR count | row mask << 8 (bit k = bottom row - k), bottom row, score, combo;
+    // COMBO combo, score;
+    // GAME_OVER score, lines, level, max combo; GARBAGE lines added, lines still pending.
+    public static final int EVENT_MOVE = 1;
+    public static final int EVENT_ROTATE = 1 << 1;
+    public static final int EVENT_HOLD = 1 << 2;
+    public static final int EVENT_HARD_DROP = 1 << 3;
+    public static final int EVENT_LOCK = 1 << 4;
+    public static final int EVENT_CLEAR = 1 << 5;
+    public static final int EVENT_COMBO = 1 << 6;
+    public static final int EVENT_GAME_OVER = 1 << 7;
+    public static final int EVENT_GARBAGE = 1 << 8;
+
+    public static final int GARBAGE_COLOR = PieceTable.PIECE_TYPES + 1;
+    private static final int[] LINE_ATTACK = {0, 0, 1, 2, 4};
+    static final int MAX_PENDING = 16;
+    // pieces spawn this many rows above the stack, so tall boards do not fall through empty rows
+    public static final int SPAWN_ROWS = 20;
+    public static final int PREVIEW_COUNT = 5;
+
+    private Board board;
+    private int width;
+
+    private int currentType;
+    private int currentRotation;
+    private int[] currentMasks;
+    private int curX;
+    private int curY;
+    private int holdType;
+    private boolean canHold;
+    private boolean gameOver;
+
+    private int score;
+    private int level;
+    private int linesCleared;
+    private int combo;
+    private int maxCombo;
+    private int dropInterval;
+    private int gravityMillis;
+    private long tickCount;
+    private long pieceCount;
+
+    private int lastLockType;
+    private int lastLockX;
+    private int lastLockY;
+    private final int[] clearedRows = new int[4];
+    private int clearedCount;
+
+    private int landingType;
+    private int landingRotation;
+    private int landingX;
+    private long landingVersion = -1;
+    private int landingY;
+
+    private final int[] pendingGarbage = new int[MAX_PENDING];
+    private int pendingCount;
+    private int pendingLines;
+    private int garbageAdded;
+    private int attack;
+
+    private EventRing eventRing;
+
+    private Randomizer randomizer = Randomizer.create(Randomizer.BAG_7);
+    private final int[] preview = new int[PREVIEW_COUNT];
+    private int previewHead;
+    private long seed;
+
+    public GameEngine() {
+        this(10, 20);
+    }
+
+    public GameEngine(int width, int height) {
+        this.board = new Board(width, height);
+        this.width = width;
+    }
+
+    public void resize(int width, int height) {
+        if (width == board.getWidth() && height == board.getHeight()) return;
+        board = new Board(width, height);
+        this.width = width;
+        landingVersion = -1;
+    }
+
+    public int start() {
+        return start(ThreadLocalRandom.current().nextLong());
+    }
+
+    public void setRandomizer(int kind) {
+        if (kind != randomizer.getKind()) randomizer = Randomizer.create(kind);
+    }
+
+    public int start(long seed) {
+        this.seed = seed;
+        randomizer.reset(seed);
+        for (int i = 0; i < PREVIEW_COUNT; i++) preview[i] = randomizer.next();
+        previewHead = 0;
+        board.clear();
+        score = 0;
+        level = 1;
+        linesCleared = 0;
+        combo = -1;
+        maxCombo = 0;
+        holdType = 0;
+        canHold = true;
+        gameOver = false;
+        dropInterval = dropInterval(1);
+        gravityMillis = 0;
+        pendingCount = 0;
+        pendingLines = 0;
+        attack = 0;
+        tickCount = 0;
+        pieceCount = 0;
+        clearedCount = 0;
+        return publish(spawn());
+    }
+
+    // copies the whole game into state, reusing its arrays; only the occupied rows of the board are copied
+    public void save(GameState state) {
+        state.ensure(board.getWidth(), board.getHeight());
+        state.stackTop = board.saveStack(state.rows, state.colors);
+        state.currentType = currentType;
+        state.currentRotation = currentRotation;
+        state.x = curX;
+        state.y = curY;
+        state.holdType = holdType;
+        state.canHold = canHold;
+        state.gameOver = gameOver;
+        state.score = score;
+        state.level = level;
+        state.linesCleared = linesCleared;
+        state.combo = combo;
+        state.maxCombo = maxCombo;
+        state.dropInterval = dropInterval;
+        state.gravityMillis = gravityMillis;
+        state.tickCount = tickCount;
+        state.pieceCount = pieceCount;
+        state.seed = seed;
+        for (int i = 0; i < PREVIEW_COUNT; i++) state.preview[i] = getNextType(i);
+        state.randomizer(randomizer.getKind()).copyFrom(randomizer);
+        System.arraycopy(pendingGarbage, 0, state.pendingGarbage, 0, pendingCount);
+        state.pendingCount = pendingCount;
+        state.pendingLines = pendingLines;
+        state.attack = attack;
+    }
+
+    // continues from state as if every tick since it was saved never happened; publishes no events
+    public void restore(GameState state) {
+        resize(state.width, state.height);
+        board.restoreStack(state.stackTop, state.rows, state.colors);
+        currentType = state.currentType;
+        currentRotation = state.currentRotation;
+        currentMasks = PieceTable.masks(currentType, currentRotation);
+        curX = state.x;
+        curY = state.y;
+        holdType = state.holdType;
+        canHold = state.canHold;
+        gameOver = state.gameOver;
+        score = state.score;
+        level = state.level;
+        linesCleared = state.linesCleared;
+        combo = state.combo;
+        maxCombo = state.maxCombo;
+        dropInterval = state.dropInterval;
+        gravityMillis = state.gravityMillis;
+        tickCount = state.tickCount;
+        pieceCount = state.pieceCount;
+        seed = state.seed;
+        System.arraycopy(state.preview, 0, preview, 0, PREVIEW_COUNT);
+        previewHead = 0;
+        setRandomizer(state.randomizer.getKind());
+        randomizer.copyFrom(state.randomizer);
+        System.arraycopy(state.pendingGarbage, 0, pendingGarbage, 0, state.pendingCount);
+        pendingCount = state.pendingCount;
+        pendingLines = state.pendingLines;
+        attack = state.attack;
+        clearedCount = 0;
+        landingVersion = -1;
+    }
+
+    public void setEventRing(EventRing eventRing) {
+        this.eventRing = eventRing;
+    }
+
+    public int tick() {
+        if (gameOver) return 0;
+        tickCount++;
+        gravityMillis += TICK_MILLIS;
+        if (gravityMillis < dropInterval) return 0;
+        gravityMillis -= dropInterval;
+        return publish(move(0, 1));
+    }
+
+    public int input(int input) {
+        if (gameOver) return 0;
+        switch (input) {
+            case INPUT_LEFT: return publish(move(-1, 0));
+            case INPUT_RIGHT: return publish(move(1, 0));
+            case INPUT_SOFT_DROP: return publish(move(0, 1));
+            case INPUT_ROTATE: return publish(rotate());
+            case INPUT_HARD_DROP: return publish(hardDrop());
+            case INPUT_HOLD: return publish(hold());
+            default: return 0;
+        }
+    }
+
+    private int publish(int events) {
+        EventRing ring = eventRing;
+        if (ring == null || events == 0) return events;
+        if ((events & EVENT_MOVE) != 0) ring.publish(EVENT_MOVE, currentType, curX, curY, 0, tickCount);
+        if ((events & EVENT_ROTATE) != 0) ring.publish(EVENT_ROTATE, currentType, currentRotation, 0, 0, tickCount);
+        if ((events & EVENT_HOLD) != 0) ring.publish(EVENT_HOLD, holdType, currentType, 0, 0, tickCount);
+        if ((events & EVENT_HARD_DROP) != 0) ring.publish(EVENT_HARD_DROP, lastLockType, lastLockX, lastLockY, 0, tickCount);
+        if ((events & EVENT_LOCK) != 0) ring.publish(EVENT_LOCK, lastLockType, lastLockX, lastLockY, 0, tickCount);
+        if ((events & EVENT_CLEAR) != 0) {
+            int bottom = clearedRows[0];
+            int rows = 0;
+            for (int i = 0; i < clearedCount; i++) rows |= 1 << (bottom - clearedRows[i]);
+            ring.publish(EVENT_CLEAR, clearedCount | rows << 8, bottom, score, combo, tickCount);
+        }
+        if ((events & EVENT_COMBO) != 0) ring.publish(EVENT_COMBO, combo, score, 0, 0, tickCount);
+        if ((events & EVENT_GARBAGE) != 0) ring.publish(EVENT_GARBAGE, garbageAdded, pendingLines, 0, 0, tickCount);
+        if ((events & EVENT_GAME_OVER) != 0) ring.publish(EVENT_GAME_OVER, score, linesCleared, level, maxCombo, tickCount);
+        return events;
+    }
+
+    int nextPiece() {
+        int type = preview[previewHead];
+        preview[previewHead] = randomizer.next();
+        previewHead = previewHead == PREVIEW_COUNT - 1 ? 0 : previewHead + 1;
+        return type;
+    }
+
+    private int spawn() {
+        currentType = nextPiece();
+        currentRotation = 0;
+        currentMasks = PieceTable.masks(currentType, currentRotation);
+        curX = spawnX(width);
+        curY = getSpawnY();
+        canHold = true;
+        pieceCount++;
+        landingVersion = -1;
+
+        if (!board.fits(currentMasks, curX, curY)) {
+            gameOver = true;
+            return EVENT_GAME_OVER;
+        }
+        return 0;
+    }
+
+    private int hold() {
+        if (!canHold) return 0;
+        int events = EVENT_HOLD;
+        if (holdType == 0) {
+            holdType = currentType;
+            events |= spawn();
+        } else {
+            int tempType = currentType;
+            currentType = holdType;
+            currentRotation = 0;
+            currentMasks = PieceTable.masks(currentType, currentRotation);
+            holdType = tempType;
+            curX = spawnX(width);
+            curY = getSpawnY();
+            pieceCount++;
+            landingVersion = -1;
+        }
+        canHold = false;
+        return events;
+    }
+
+    private int rotate() {
+        if (currentType == PieceTable.O_PIECE) return 0;
+        int rotation = PieceTable.nextRotation(currentRotation);
+        int[] rotated = PieceTable.masks(currentType, rotation);
+
+        if (board.fits(rotated, curX, curY)) {
+            currentRotation = rotation; currentMasks = rotated;
+        } else if (board.fits(rotated, curX - 1, curY)) {
+            curX--; currentRotation = rotation; currentMasks = rotated;
+        } else if (board.fits(rotated, curX + 1, curY)) {
+            curX++; currentRotation = rotation; currentMasks = rotated;
+        } else {
+            return 0;
+        }
+        return EVENT_ROTATE;
+    }
+
+    private int move(int dx, int dy) {
+        if (board.fits(currentMasks, curX + dx, curY + dy)) {
+            curX += dx; curY += dy;
+            return dx != 0 ? EVENT_MOVE : 0;
+        } else if (dy > 0) {
+            return lock();
+        }
+        return 0;
+    }
+
+    private int hardDrop() {
+        curY = getGhostY();
+        return EVENT_HARD_DROP | lock();
+    }
+
+    private int lock() {
+        board.place(currentMasks, curX, curY, currentType);
+        lastLockType = currentType;
+        lastLockX = curX;
+        lastLockY = curY;
+        int events = EVENT_LOCK | clearLines();
+        if (clearedCount == 0 && pendingCount > 0) {
+            events |= EVENT_GARBAGE;
+            if (riseGarbage()) {
+                gameOver = true;
+                return events | EVENT_GAME_OVER;
+            }
+        }
+        return events | spawn();
+    }
+
+    public void queueGarbage(int lines, int hole) {
+        if (lines <= 0) return;
+        if (pendingCount == MAX_PENDING) {
+            pendingGarbage[MAX_PENDING - 1] += lines << 8;
+        } else {
+            pendingGarbage[pendingCount++] = lines << 8 | hole & 0xFF;
+        }
+        pendingLines += lines;
+    }
+
+    public int takeAttack() {
+        int sent = attack;
+        attack = 0;
+        return sent;
+    }
+
+    private boolean riseGarbage() {
+        boolean overflow = false;
+        garbageAdded = pendingLines;
+        for (int i = 0; i < pendingCount; i++) {
+            int entry = pendingGarbage[i];
+            overflow |= board.addGarbage(entry >>> 8, (entry & 0xFF) % width, GARBAGE_COLOR);
+        }
+        pendingCount = 0;
+        pendingLines = 0;
+        return overflow;
+    }
+
+    private int cancelGarbage(int lines) {
+        int removed = 0;
+        while (lines > 0 && removed < pendingCount) {
+            int entry = pendingGarbage[removed];
+            int cancel = Math.min(lines, entry >>> 8);
+            lines -= cancel;
+            pendingLines -= cancel;
+            if (cancel == entry >>> 8) removed++;
+            else pendingGarbage[removed] = entry - (cancel << 8);
+        }
+        System.arraycopy(pendingGarbage, removed, pendingGarbage, 0, pendingCount - removed);
+        pendingCount -= removed;
+        return lines;
+    }
+
+    private int clearLines() {
+        int lines = board.clearFullLines(clearedRows);
+        clearedCount = Math.min(lines, clearedRows.length);
+
+        if (lines == 0) {
+            combo = -1;
+            return 0;
+        }
+        linesCleared += lines;
+        combo++;
+        maxCombo = Math.max(maxCombo, combo);
+        int bonusCombo = combo * 50 * level;
+        int pontosBase = lines == 1 ? 40 : lines == 2 ? 100 : lines == 3 ? 300 : 1200;
+        score += (pontosBase * level) + bonusCombo;
+        level = 1 + (linesCleared / 10);
+        dropInterval = dropInterval(level);
+        attack += cancelGarbage(LINE_ATTACK[Math.min(lines, 4)] + Math.min(4, (combo + 1) / 2));
+        return combo > 0 ? EVENT_CLEAR | EVENT_COMBO : EVENT_CLEAR;
+    }
+
+    public int getGhostY() {
+        long version = board.getVersion();
+        if (landingVersion != version || landingX != curX || landingRotation != currentRotation
+                || landingType != currentType) {
+            landingY = board.landingY(currentMasks, curX, curY);
+            landingType = currentType;
+            landingRotation = currentRotation;
+            landingX = curX;
+            landingVersion = version;
+        }
+        return landingY;
+    }
+
+    public int getSpawnY() { return spawnY(board); }
+
+    static int spawnX(int width) { return width / 2 - 2; }
+    public static int dropInterval(int level) { return Math.max(100, 500 - (level - 1) * 50); }
+    static int spawnY(Board board) { return Math.max(0, board.getStackTop() - SPAWN_ROWS); }
+
+    public Board getBoard() { return board; }
+    public int getCurrentType() { return currentType; }
+    public int getCurrentRotation() { return currentRotation; }
+    public int[] getCurrentMasks() { return currentMasks; }
+    public int getX() { return curX; }
+    public int getY() { return curY; }
+    public int getNextType() { return preview[previewHead]; }
+    public int getNextType(int index) { return preview[(previewHead + index) % PREVIEW_COUNT]; }
+    public int getRandomizer() { return randomizer.getKind(); }
+    public int getHoldType() { return holdType; }
+    public boolean canHold() { return canHold; }
+    public boolean isGameOver() { return gameOver; }
+    public int getScore() { return score; }
+    public int getLevel() { return level; }
+    public int getLinesCleared() { return linesCleared; }
+    public int getCombo() { return combo; }
+    public int getMaxCombo() { return maxCombo; }
+    public long getSeed() { return seed; }
+    public int getDropInterval() { return dropInterval; }
+    public long getTickCount() { return tickCount; }
+    public long getPieceCount() { return pieceCount; }
+    public int getLastLockType() { return lastLockType; }
+    public int getLastLockX() { return lastLockX; }
+    public int getLastLockY() { return lastLockY; }
+    public int getClearedRowCount() { return clearedCount; }
+    public int getClearedRow(int index) { return clearedRows[index]; }
+    public int getPendingGarbage() { return pendingLines; }
+}
@@ -0,0 +1,381 @@
+package quadra;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+public class GameLoop implements Runnable {
+
+    public static final long TICK_NANOS = GameEngine.TICK_MILLIS * 1_000_000L;
+    private static final int MAX_CATCH_UP_TICKS = 25;
+    public static final int DAS_TICKS = ticks(Integer.getInteger("quadra.das", 170));
+    public static final int ARR_TICKS = ticks(Integer.getInteger("quadra.arr", 30));
+    public static final int SOFT_DROP_TICKS = Math.max(1, ticks(Integer.getInteger("quadra.softDrop", 30)));
+    private static final int AUTOSAVE_TICKS = 500;
+
+    private final GameEngine game;
+    private final Runnable afterTicks;
+    private final Thread thread;
+
+    private final KeyState keys = new KeyState();
+    private int shiftInput;
+    private int shiftTicks;
+    private int softDropTicks;
+    private long inputNanos;
+
+    private volatile boolean running = true;
+    private volatile boolean paused;
+    private volatile boolean active;
+    private volatile boolean startRequested;
+    private volatile GameSnapshot snapshot;
+    private volatile long tickNanos = TICK_NANOS;
+    private volatile int boardWidth = 10;
+    private volatile int boardHeight = 20;
+    private volatile int viewRows = Integer.MAX_VALUE;
+    private volatile int randomizer = Randomizer.BAG_7;
+
+    private volatile Replay replayRequest;
+    private volatile Controller controllerRequest;
+    private volatile VersusClient versusRequest;
+    private VersusClient versus;
+    private boolean awaitingMatch;
+    private Controller controller;
+    private Replay playback;
+    private int playbackIndex;
+    private Replay recording;
+    private volatile Replay lastReplay;
+    private volatile PerfStats perf;
+    // called on this thread for every game over; the event ring may drop it under load, this never does
+    private volatile EventRing.Handler gameOverHandler;
+
+    // games the player started (not demos, replays or versus) are handed to the sink every AUTOSAVE_TICKS, on pause
+    // and on shutdown, always on this thread and with the same reused state; null once the game is over
+    private volatile Consumer<GameState> saveSink;
+    private volatile boolean saveRequested;
+    private volatile GameState resumeRequest;
+    private final GameState saveState = new GameState();
+    private boolean resumable;
+    private long savedTick;
+
+    public GameLoop(GameEngine game, Runnable afterTicks) {
+        this.game = game;
+        this.afterTicks = afterTicks;
+        this.thread = new Thread(this, "quadra-logic");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    // stops the loop after a last save and waits for it
+    public void shutdown(long millis) {
+        saveRequested = true;
+        stop();
+        try {
+            thread.join(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void startGame() {
+        startGame(null);
+    }
+
+    public void startGame(Controller controller) {
+        controllerRequest = controller;
+        replayRequest = null;
+        versusRequest = null;
+        resumeRequest = null;
+        tickNanos = TICK_NANOS;
+        startRequested = true;
+        LockSupport.unpark(thread);
+    }
+
+    public void startReplay(Replay replay, int speed) {
+        controllerRequest = null;
+        replayRequest = replay;
+        versusRequest = null;
+        resumeRequest = null;
+        tickNanos = TICK_NANOS / Math.max(1, speed);
+        startRequested = true;
+        LockSupport.unpark(thread);
+    }
+
+    public void startVersus(VersusClient client) {
+        controllerRequest = null;
+        replayRequest = null;
+        versusRequest = client;
+        resumeRequest = null;
+        tickNanos = TICK_NANOS;
+        startRequested = true;
+        LockSupport.unpark(thread);
+    }
+
+    public void resume(GameState state) {
+        controllerRequest = null;
+        replayRequest = null;
+        versusRequest = null;
+        resumeRequest = state;
+        tickNanos = TICK_NANOS;
+        startRequested = true;
+        LockSupport.unpark(thread);
+    }
+
+    public void setSaveSink(Consumer<GameState> sink) { saveSink = sink; }
+
+    public void setGameOverHandler(EventRing.Handler handler) { gameOverHandler = handler; }
+
+    public void setBoardSize(int width, int height) {
+        Board.checkSize(width, height);
+        boardWidth = width;
+        boardHeight = height;
+    }
+
+    public void setViewRows(int rows) { viewRows = rows; }
+
+    public void setRandomizer(int kind) { randomizer = kind; }
+
+    public Replay getLastReplay() { return lastReplay; }
+
+    public long getTickNanos() { return tickNanos; }
+
+    public void setPerfStats(PerfStats perf) { this.perf = perf; }
+
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        if (paused) saveRequested = true;
+        LockSupport.unpark(thread);
+    }
+
+    public boolean isPaused() { return paused; }
+
+    public GameSnapshot getSnapshot() { return snapshot; }
+
+    public KeyState getKeys() { return keys; }
+
+    @Override
+    public void run() {
+        long nextTick = System.nanoTime();
+        while (running) {
+            if (startRequested) {
+                startRequested = false;
+                keys.takePressed();
+                shiftInput = 0;
+                playback = replayRequest;
+                replayRequest = null;
+                controller = controllerRequest;
+                versus = versusRequest;
+                GameState resume = resumeRequest;
+                resumeRequest = null;
+                playbackIndex = 0;
+                resumable = playback == null && controller == null && versus == null;
+                if (resume != null) {
+                    game.restore(resume);
+                    GameState start = new GameState();
+                    game.save(start);
+                    recording = new Replay(start);
+                } else if (playback != null && playback.getStart() != null) {
+                    game.restore(playback.getStart());
+                } else if (playback != null) {
+                    game.resize(playback.getWidth(), playback.getHeight());
+                    game.setRandomizer(playback.getRandomizer());
+                } else if (versus != null) {
+                    game.resize(VersusProtocol.BOARD_WIDTH, VersusProtocol.BOARD_HEIGHT);
+                    game.setRandomizer(Randomizer.BAG_7);
+                } else {
+                    game.resize(boardWidth, boardHeight);
+                    game.setRandomizer(randomizer);
+                }
+                if (playback != null) {
+                    recording = null;
+                    if (playback.getStart() == null) track(game.start(playback.getSeed()));
+                } else if (versus == null && resume == null) {
+                    track(game.start());
+                    recording = new Replay(game.getBoard().getWidth(), game.getBoard().getHeight(), game.getSeed(),
+                            game.getRandomizer());
+                }
+                awaitingMatch = versus != null;
+                active = versus == null && !game.isGameOver();
+                savedTick = game.getTickCount();
+                nextTick = System.nanoTime();
+                if (!awaitingMatch) publish(nextTick);
+                if (afterTicks != null) afterTicks.run();
+            }
+            if (saveRequested) {
+                saveRequested = false;
+                save();
+            }
+            long now = System.nanoTime();
+            if (versus != null && !active) {
+                versus.pump();
+                if (awaitingMatch && versus.isStarted()) {
+                    awaitingMatch = false;
+                    track(game.start(versus.getSeed()));
+                    recording = new Replay(game.getBoard().getWidth(), game.getBoard().getHeight(), game.getSeed(),
+                            game.getRandomizer());
+                    active = !game.isGameOver();
+                    nextTick = now;
+                    publish(now);
+                    continue;
+                }
+            }
+            if (!active || paused) {
+                nextTick = now;
+                LockSupport.parkNanos(TICK_NANOS);
+                continue;
+            }
+
+            long period = tickNanos;
+            int steps = 0;
+            PerfStats stats = perf;
+            while (now - nextTick >= 0 && steps < MAX_CATCH_UP_TICKS) {
+                if (stats == null) step();
+                else timedStep(stats);
+                nextTick += period;
+                steps++;
+                publish(nextTick - period);
+                if (!active) break;
+            }
+            if (steps == MAX_CATCH_UP_TICKS) nextTick = now;
+            if (game.getTickCount() - savedTick >= AUTOSAVE_TICKS) save();
+            if (afterTicks != null) afterTicks.run();
+
+            long wait = nextTick - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+        }
+        if (saveRequested) save();
+    }
+
+    private void save() {
+        savedTick = game.getTickCount();
+        Consumer<GameState> sink = saveSink;
+        if (sink == null || !resumable) return;
+        game.save(saveState);
+        sink.accept(saveState);
+    }
+
+    private void timedStep(PerfStats stats) {
+        PerfStats.TickEvent event = PerfStats.beginTick();
+        long start = System.nanoTime();
+        step();
+        stats.recordTick(System.nanoTime() - start);
+        if (event != null) {
+            event.tick = game.getTickCount();
+            event.commit();
+        }
+    }
+
+    private void step() {
+        if (playback != null) {
+            while (playbackIndex < playback.getEventCount() && playback.getTick(playbackIndex) == game.getTickCount()
+                    && !game.isGameOver()) track(playback.apply(playbackIndex++, game));
+        } else if (controller != null) {
+            int input = controller.nextInput(game);
+            if (input != GameEngine.INPUT_NONE) {
+                recording.record(game.getTickCount(), input);
+                track(game.input(input));
+            }
+        } else {
+            if (versus != null) receiveGarbage();
+            processKeys();
+        }
+        track(game.tick());
+        if (versus != null) {
+            versus.sync(game, recording != null ? recording : lastReplay);
+            if (versus.isFinished()) active = false;
+        }
+        if (game.isGameOver()) active = false;
+    }
+
+    private void receiveGarbage() {
+        versus.pump();
+        for (int entry; (entry = versus.nextGarbage()) >= 0; ) {
+            recording.recordGarbage(game.getTickCount(), entry >>> 8, entry & 0xFF);
+            game.queueGarbage(entry >>> 8, entry & 0xFF);
+        }
+    }
+
+    private void processKeys() {
+        int pressed = keys.takePressed();
+        int held = keys.getHeld();
+        if (pressedBit(pressed, GameEngine.INPUT_HOLD)) apply(GameEngine.INPUT_HOLD);
+        if (pressedBit(pressed, GameEngine.INPUT_ROTATE)) apply(GameEngine.INPUT_ROTATE);
+
+        boolean left = pressedBit(pressed, GameEngine.INPUT_LEFT);
+        boolean right = pressedBit(pressed, GameEngine.INPUT_RIGHT);
+        if (left || right) {
+            shiftInput = right ? GameEngine.INPUT_RIGHT : GameEngine.INPUT_LEFT;
+            shiftTicks = 0;
+            if (left) apply(GameEngine.INPUT_LEFT);
+            if (right) apply(GameEngine.INPUT_RIGHT);
+        } else if (shiftInput != 0 && (held & 1 << shiftInput) == 0) {
+            int other = shiftInput == GameEngine.INPUT_LEFT ? GameEngine.INPUT_RIGHT : GameEngine.INPUT_LEFT;
+            shiftInput = (held & 1 << other) != 0 ? other : 0;
+            shiftTicks = 0;
+        } else if (shiftInput != 0 && ++shiftTicks >= DAS_TICKS) {
+            if (ARR_TICKS == 0) {
+                while (canShift(shiftInput)) apply(shiftInput);
+            } else if ((shiftTicks - DAS_TICKS) % ARR_TICKS == 0 && canShift(shiftInput)) {
+                apply(shiftInput);
+            }
+        }
+
+        if (pressedBit(pressed, GameEngine.INPUT_SOFT_DROP)) {
+            softDropTicks = 0;
+            apply(GameEngine.INPUT_SOFT_DROP);
+        } else if ((held & 1 << GameEngine.INPUT_SOFT_DROP) != 0 && ++softDropTicks % SOFT_DROP_TICKS == 0) {
+            apply(GameEngine.INPUT_SOFT_DROP);
+        }
+        if (pressedBit(pressed, GameEngine.INPUT_HARD_DROP)) apply(GameEngine.INPUT_HARD_DROP);
+    }
+
+    private boolean pressedBit(int pressed, int input) {
+        if ((pressed & 1 << input) == 0) return false;
+        long nanos = keys.getPressNanos(input);
+        if (inputNanos == 0 || nanos - inputNanos < 0) inputNanos = nanos;
+        return true;
+    }
+
+    private boolean canShift(int input) {
+        int dx = input == GameEngine.INPUT_LEFT ? -1 : 1;
+        return !game.isGameOver() && game.getBoard().fits(game.getCurrentMasks(), game.getX() + dx, game.getY());
+    }
+
+    private int apply(int input) {
+        if (game.isGameOver()) return 0;
+        if (recording != null) recording.record(game.getTickCount(), input);
+        int events = game.input(input);
+        track(events);
+        return events;
+    }
+
+    private static int ticks(int millis) {
+        return Math.max(0, (millis + GameEngine.TICK_MILLIS / 2) / GameEngine.TICK_MILLIS);
+    }
+
+    private void track(int events) {
+        if ((events & GameEngine.EVENT_GAME_OVER) == 0) return;
+        if (recording != null) {
+            recording.finish(game.getTickCount(), game.getScore(), game.getLinesCleared());
+            lastReplay = recording;
+            recording = null;
+        }
+        EventRing.Handler handler = gameOverHandler;
+        if (handler != null) handler.onEvent(GameEngine.EVENT_GAME_OVER, game.getScore(), game.getLinesCleared(),
+                game.getLevel(), game.getMaxCombo(), game.getTickCount());
+        Consumer<GameState> sink = saveSink;
+        if (resumable && sink != null) sink.accept(null);
+        resumable = false;
+    }
+
+    private void publish(long tickNanos) {
+        snapshot = new GameSnapshot(game, snapshot, viewRows, tickNanos, inputNanos);
+        inputNanos = 0;
+    }
+}
@@ -0,0 +1,129 @@
+package quadra;
+
+public final class GameSnapshot {
+
+    private static final int CAMERA_MARGIN = 2;
+
+    public final int width;
+    public final int height;
+    public final long boardVersion;
+    // only rows viewTop .. viewTop + viewRows - 1 are copied; the camera follows the piece and its ghost
+    public final int viewTop;
+    public final int viewRows;
+    private final long[] rows;
+    private final byte[] cells;
+
+    public final long pieceCount;
+    public final int currentType;
+    public final int rotation;
+    public final int x;
+    public final int y;
+    public final int prevX;
+    public final int prevY;
+    public final int ghostY;
+    public final int nextType;
+    // the next GameEngine.PREVIEW_COUNT pieces, 4 bits each, soonest in the low bits
+    public final int upcoming;
+    public final int holdType;
+    public final boolean canHold;
+    public final boolean gameOver;
+
+    public final int score;
+    public final int level;
+    public final int lines;
+    public final int combo;
+    public final int pendingGarbage;
+
+    public final long tick;
+    public final long tickNanos;
+    public final long inputNanos;
+
+    GameSnapshot(GameEngine game, GameSnapshot previous, int viewRows, long tickNanos, long inputNanos) {
+        Board board = game.getBoard();
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+        this.boardVersion = board.getVersion();
+        this.viewRows = Math.min(viewRows, height);
+        if (previous != null && (previous.width != width || previous.height != height || previous.viewRows != this.viewRows))
+            previous = null;
+
+        this.pieceCount = game.getPieceCount();
+        this.currentType = game.getCurrentType();
+        this.rotation = game.getCurrentRotation();
+        this.x = game.getX();
+        this.y = game.getY();
+        boolean samePiece = previous != null && previous.pieceCount == pieceCount;
+        this.prevX = samePiece ? previous.x : x;
+        this.prevY = samePiece ? previous.y : y;
+        this.ghostY = game.getGhostY();
+        this.nextType = game.getNextType();
+        int next = 0;
+        for (int i = GameEngine.PREVIEW_COUNT - 1; i >= 0; i--) next = next << 4 | game.getNextType(i);
+        this.upcoming = next;
+        this.holdType = game.getHoldType();
+        this.canHold = game.canHold();
+        this.gameOver = game.isGameOver();
+
+        this.score = game.getScore();
+        this.level = game.getLevel();
+        this.lines = game.getLinesCleared();
+        this.combo = game.getCombo();
+        this.pendingGarbage = game.getPendingGarbage();
+
+        this.tick = game.getTickCount();
+        this.tickNanos = tickNanos;
+        this.inputNanos = inputNanos;
+
+        this.viewTop = camera(previous);
+        if (previous != null && previous.boardVersion == boardVersion && previous.viewTop == viewTop) {
+            this.rows = previous.rows;
+            this.cells = previous.cells;
+        } else {
+            this.rows = new long[this.viewRows];
+            this.cells = new byte[width * this.viewRows];
+            board.copyRows(viewTop, rows, cells);
+        }
+    }
+
+    private int camera(GameSnapshot previous) {
+        int bottom = height - viewRows;
+        if (bottom == 0) return 0;
+        int pieceTop = y + PieceTable.minY(currentType, rotation) - CAMERA_MARGIN;
+        int ghostBottom = ghostY + PieceTable.maxY(currentType, rotation) + 1 + CAMERA_MARGIN;
+        int top = previous != null ? previous.viewTop : pieceTop;
+        if (top > pieceTop) top = pieceTop;
+        else if (top + viewRows < ghostBottom) top = Math.min(pieceTop, ghostBottom - viewRows);
+        top = Math.max(0, Math.min(bottom, top));
+        if (previous == null) return top;
+        int distance = top - previous.viewTop;
+        return previous.viewTop + (distance > 0 ? (distance + 3) / 4 : -((3 - distance) / 4));
+    }
+
+    public long getRow(int y) {
+        int i = y - viewTop;
+        return i >= 0 && i < viewRows ? rows[i] : 0;
+    }
+
+    public int get(int x, int y) { return cells[(y - viewTop) * width + x]; }
+
+    // whether the i-th visible row looks the same in both snapshots, wherever their cameras are
+    public boolean sameScreenRow(GameSnapshot other, int i) {
+        if (rows == other.rows) return true;
+        if (rows[i] != other.rows[i]) return false;
+        for (int x = i * width, end = x + width; x < end; x++) if (cells[x] != other.cells[x]) return false;
+        return true;
+    }
+
+    public int getNextType(int index) { return upcoming >>> (4 * index) & 0xF; }
+
+    int[] masks() { return PieceTable.masks(currentType, rotation); }
+
+    public double interpolatedX(double alpha) { return interpolate(prevX, x, alpha); }
+
+    public double interpolatedY(double alpha) { return interpolate(prevY, y, alpha); }
+
+    private static double interpolate(int from, int to, double alpha) {
+        if (Math.abs(to - from) > 1) return to;
+        return from + (to - from) * alpha;
+    }
+}
@@ -0,0 +1,193 @@
+package quadra;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Everything GameEngine needs to carry on from a tick: GameEngine.save/restore copy into and out of a reused
+// instance without allocating once the board size is known, and write/read give the compact versioned file format.
+public final class GameState {
+
+    private static final byte[] MAGIC = {'Q', 'S', 'T', 'T'};
+    private static final int VERSION = 1;
+
+    int width;
+    int height;
+    // rows and colors are only meaningful from stackTop down
+    int stackTop;
+    long[] rows = new long[0];
+    byte[] colors = new byte[0];
+
+    int currentType;
+    int currentRotation;
+    int x;
+    int y;
+    int holdType;
+    boolean canHold;
+    boolean gameOver;
+
+    int score;
+    int level;
+    int linesCleared;
+    int combo;
+    int maxCombo;
+    int dropInterval;
+    int gravityMillis;
+    long tickCount;
+    long pieceCount;
+    long seed;
+
+    final int[] preview = new int[GameEngine.PREVIEW_COUNT];
+    Randomizer randomizer;
+
+    final int[] pendingGarbage = new int[GameEngine.MAX_PENDING];
+    int pendingCount;
+    int pendingLines;
+    int attack;
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public long getTickCount() { return tickCount; }
+    public int getScore() { return score; }
+    public boolean isGameOver() { return gameOver; }
+
+    void ensure(int width, int height) {
+        this.width = width;
+        this.height = height;
+        if (rows.length != height) rows = new long[height];
+        if (colors.length != width * height) colors = new byte[width * height];
+    }
+
+    Randomizer randomizer(int kind) {
+        if (randomizer == null || randomizer.getKind() != kind) randomizer = Randomizer.create(kind);
+        return randomizer;
+    }
+
+    // stack rows as varints followed by the color of each set cell; the rest are varints, x and y zigzagged
+    public void write(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        Replay.writeVarint(out, width);
+        Replay.writeVarint(out, height);
+        Replay.writeVarint(out, stackTop);
+        for (int row = stackTop; row < height; row++) {
+            long bits = rows[row];
+            Replay.writeVarint(out, bits);
+            for (; bits != 0; bits &= bits - 1) out.write(colors[row * width + Long.numberOfTrailingZeros(bits)]);
+        }
+        out.write(currentType);
+        out.write(currentRotation);
+        Replay.writeVarint(out, x << 1 ^ x >> 31);
+        Replay.writeVarint(out, y << 1 ^ y >> 31);
+        out.write(holdType);
+        out.write((canHold ? 1 : 0) | (gameOver ? 2 : 0));
+        Replay.writeVarint(out, score);
+        Replay.writeVarint(out, level);
+        Replay.writeVarint(out, linesCleared);
+        Replay.writeVarint(out, combo + 1);
+        Replay.writeVarint(out, maxCombo);
+        Replay.writeVarint(out, dropInterval);
+        Replay.writeVarint(out, gravityMillis);
+        Replay.writeVarint(out, tickCount);
+        Replay.writeVarint(out, pieceCount);
+        for (int shift = 56; shift >= 0; shift -= 8) out.write((int) (seed >>> shift));
+        for (int piece : preview) out.write(piece);
+        out.write(randomizer.getKind());
+        randomizer.write(out);
+        out.write(pendingCount);
+        for (int i = 0; i < pendingCount; i++) Replay.writeVarint(out, pendingGarbage[i]);
+        Replay.writeVarint(out, pendingLines);
+        Replay.writeVarint(out, attack);
+    }
+
+    public static GameState read(InputStream in) throws IOException {
+        for (byte b : MAGIC) if (in.read() != b) throw new IOException("not a state file");
+        int version = in.read();
+        if (version != VERSION) throw new IOException("unsupported state version: " + version);
+        GameState state = new GameState();
+        int width = (int) Replay.readVarint(in);
+        int height = (int) Replay.readVarint(in);
+        try {
+            Board.checkSize(width, height);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+        state.ensure(width, height);
+        state.stackTop = (int) Replay.readVarint(in);
+        if (state.stackTop > height) throw new IOException("corrupt stack top: " + state.stackTop);
+        long outside = width == Board.MAX_WIDTH ? 0 : -1L << width;
+        for (int row = state.stackTop; row < height; row++) {
+            long bits = Replay.readVarint(in);
+            if ((bits & outside) != 0) throw new IOException("corrupt row " + row);
+            state.rows[row] = bits;
+            for (; bits != 0; bits &= bits - 1)
+                state.colors[row * width + Long.numberOfTrailingZeros(bits)] = (byte) Randomizer.readByte(in, 1, GameEngine.GARBAGE_COLOR);
+        }
+        state.currentType = Randomizer.readByte(in, 1, PieceTable.PIECE_TYPES);
+        state.currentRotation = Randomizer.readByte(in, 0, 3);
+        int x = (int) Replay.readVarint(in);
+        int y = (int) Replay.readVarint(in);
+        state.x = x >>> 1 ^ -(x & 1);
+        state.y = y >>> 1 ^ -(y & 1);
+        state.holdType = Randomizer.readByte(in, 0, PieceTable.PIECE_TYPES);
+        int flags = Randomizer.readByte(in, 0, 3);
+        state.canHold = (flags & 1) != 0;
+        state.gameOver = (flags & 2) != 0;
+        checkPiece(state);
+        state.score = check(Replay.readVarint(in), 0, Integer.MAX_VALUE, "score");
+        state.level = check(Replay.readVarint(in), 1, Integer.MAX_VALUE, "level");
+        state.linesCleared = check(Replay.readVarint(in), 0, Integer.MAX_VALUE, "lines");
+        state.combo = check(Replay.readVarint(in), 0, Integer.MAX_VALUE, "combo") - 1;
+        state.maxCombo = check(Replay.readVarint(in), 0, Integer.MAX_VALUE, "max combo");
+        state.dropInterval = check(Replay.readVarint(in), 1, Integer.MAX_VALUE, "drop interval");
+        state.gravityMillis = check(Replay.readVarint(in), 0, state.dropInterval - 1, "gravity");
+        state.tickCount = Replay.readVarint(in);
+        state.pieceCount = Replay.readVarint(in);
+        if (state.tickCount < 0 || state.pieceCount < 0) throw new IOException("corrupt state: negative counter");
+        for (int i = 0; i < 8; i++) state.seed = state.seed << 8 | Randomizer.readByte(in, 0, 0xFF);
+        for (int i = 0; i < state.preview.length; i++) state.preview[i] = Randomizer.readByte(in, 1, PieceTable.PIECE_TYPES);
+        state.randomizer(Randomizer.readByte(in, 0, Randomizer.KINDS - 1)).read(in);
+        state.pendingCount = Randomizer.readByte(in, 0, GameEngine.MAX_PENDING);
+        long lines = 0;
+        for (int i = 0; i < state.pendingCount; i++) {
+            int entry = check(Replay.readVarint(in), 1 << 8, Integer.MAX_VALUE, "garbage");
+            if ((entry & 0xFF) >= width) throw new IOException("corrupt state: garbage hole " + (entry & 0xFF));
+            state.pendingGarbage[i] = entry;
+            lines += entry >>> 8;
+        }
+        state.pendingLines = check(Replay.readVarint(in), lines, lines, "pending lines");
+        state.attack = check(Replay.readVarint(in), 0, Integer.MAX_VALUE, "attack");
+        return state;
+    }
+
+    private static int check(long value, long min, long max, String field) throws IOException {
+        if (value < min || value > max) throw new IOException("corrupt state: " + field + " " + value);
+        return (int) value;
+    }
+
+    // the current piece has to lie inside the board, and clear of the stack unless the game already ended
+    private static void checkPiece(GameState state) throws IOException {
+        int[] masks = PieceTable.masks(state.currentType, state.currentRotation);
+        if (state.y < 0) throw new IOException("corrupt state: piece y " + state.y);
+        for (int i = 0; i < masks.length; i++) {
+            int mask = masks[i];
+            if (mask == 0) continue;
+            int row = state.y + i;
+            if (row >= state.height || state.x + Integer.numberOfTrailingZeros(mask) < 0
+                    || state.x + 31 - Integer.numberOfLeadingZeros(mask) >= state.width)
+                throw new IOException("corrupt state: piece at " + state.x + "," + state.y);
+            long cells = state.x >= 0 ? (long) mask << state.x : mask >>> -state.x;
+            if (!state.gameOver && row >= state.stackTop && (state.rows[row] & cells) != 0)
+                throw new IOException("corrupt state: piece overlaps the stack");
+        }
+    }
+
+    public static GameState load(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return read(in);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package quadra;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class KeyState {
+
+    private final AtomicInteger held = new AtomicInteger();
+    private final AtomicInteger pressed = new AtomicInteger();
+    private final AtomicLongArray pressNanos = new AtomicLongArray(32);
+
+    public boolean press(int input, long nanos) {
+        int bit = 1 << input;
+        if ((held.get() & bit) != 0) return false;
+        pressNanos.set(input, nanos);
+        update(pressed, bit, 0);
+        update(held, bit, 0);
+        return true;
+    }
+
+    public void hold(int input) {
+        update(held, 1 << input, 0);
+    }
+
+    public void release(int input) {
+        update(held, 0, 1 << input);
+    }
+
+    public void releaseAll() {
+        held.set(0);
+    }
+
+    public int getHeld() { return held.get(); }
+
+    public boolean isHeld(int input) { return (held.get() & 1 << input) != 0; }
+
+    public int takePressed() {
+        return pressed.getAndSet(0);
+    }
+
+    public long getPressNanos(int input) { return pressNanos.get(input); }
+
+    private static void update(AtomicInteger bits, int set, int clear) {
+        int current;
+        do {
+            current = bits.get();
+        } while (!bits.compareAndSet(current, (current | set) & ~clear));
+    }
+}
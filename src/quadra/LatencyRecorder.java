@@ -0,0 +1,69 @@
+package quadra;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyRecorder {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_SHIFT = 40 - SUB_BITS;
+    private static final int BUCKETS = (MAX_SHIFT + 2) * SUB_BUCKETS;
+
+    public static final class Interval {
+        private final long[] counts = new long[BUCKETS];
+        private long total;
+        private long sum;
+        private int maxIndex = -1;
+
+        public long getCount() { return total; }
+        public long getMean() { return total == 0 ? 0 : sum / total; }
+        public long getMax() { return maxIndex < 0 ? 0 : highestValue(maxIndex); }
+
+        public long getPercentile(double percentile) {
+            if (total == 0) return 0;
+            long target = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i <= maxIndex; i++) {
+                seen += counts[i];
+                if (seen >= target) return highestValue(i);
+            }
+            return getMax();
+        }
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final long[] previous = new long[BUCKETS];
+
+    public void record(long nanos) {
+        counts.incrementAndGet(index(nanos));
+    }
+
+    public void sample(Interval into) {
+        into.total = 0;
+        into.sum = 0;
+        into.maxIndex = -1;
+        for (int i = 0; i < BUCKETS; i++) {
+            long now = counts.get(i);
+            long delta = now - previous[i];
+            previous[i] = now;
+            into.counts[i] = delta;
+            if (delta == 0) continue;
+            into.total += delta;
+            into.sum += delta * highestValue(i);
+            into.maxIndex = i;
+        }
+    }
+
+    static int index(long value) {
+        if (value <= 0) return 0;
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        if (shift > MAX_SHIFT) return BUCKETS - 1;
+        return (int) (shift * SUB_BUCKETS + (value >>> shift));
+    }
+
+    static long highestValue(int index) {
+        int shift = Math.max(0, index / SUB_BUCKETS - 1);
+        long mantissa = index - shift * SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
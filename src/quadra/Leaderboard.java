@@ -0,0 +1,146 @@
+package quadra;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+// Every finished game as a fixed-size record in date order, plus an index of the scores sorted from best to worst
+// so rankOf and getBestScore are a binary search and a read; the index is rebuilt from the records if it is stale.
+public class Leaderboard implements Closeable {
+
+    private static final int MAGIC_RECORDS = 0x514C4244;
+    private static final int MAGIC_INDEX = 0x514C4958;
+    private static final int VERSION = 1;
+    private static final int INDEX_VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int RECORD_BYTES = 32;
+    private static final int INDEX_BYTES = 4;
+    private static final int COUNT_OFFSET = 8;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final RandomAccessFile recordFile;
+    private final RandomAccessFile indexFile;
+    private MappedByteBuffer records;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int count;
+
+    public Leaderboard(File records, File index) throws IOException {
+        this.recordFile = new RandomAccessFile(records, "rw");
+        this.indexFile = new RandomAccessFile(index, "rw");
+        boolean fresh = recordFile.length() < HEADER_BYTES;
+        long stored = fresh ? 0 : (recordFile.length() - HEADER_BYTES) / RECORD_BYTES;
+        map((int) Math.max(INITIAL_CAPACITY, stored));
+
+        if (fresh) {
+            writeHeader(this.records, MAGIC_RECORDS, VERSION, 0);
+            writeHeader(this.index, MAGIC_INDEX, INDEX_VERSION, 0);
+        } else {
+            if (this.records.getInt(0) != MAGIC_RECORDS || this.records.getInt(4) != VERSION)
+                throw new IOException("not a leaderboard file: " + records);
+            count = (int) this.records.getLong(COUNT_OFFSET);
+            if (this.index.getInt(0) != MAGIC_INDEX || this.index.getInt(4) != INDEX_VERSION
+                    || this.index.getLong(COUNT_OFFSET) != count) rebuildIndex();
+        }
+    }
+
+    public synchronized int size() { return count; }
+
+    public synchronized int getBestScore() {
+        return count == 0 ? 0 : indexScore(0);
+    }
+
+    public synchronized int rankOf(int score) {
+        return higherCount(score) + 1;
+    }
+
+    public synchronized int add(ScoreStore.Record r) throws IOException {
+        if (count == capacity) map(capacity * 2);
+        int p = HEADER_BYTES + count * RECORD_BYTES;
+        records.putLong(p, r.timestamp);
+        records.putInt(p + 8, r.score);
+        records.putInt(p + 12, r.lines);
+        records.putShort(p + 16, (short) r.level);
+        records.putShort(p + 18, (short) r.maxCombo);
+        records.putLong(p + 20, r.durationMillis);
+
+        index.putLong(COUNT_OFFSET, -1);
+        int pos = higherOrEqualCount(r.score);
+        shiftIndex(pos);
+        index.putInt(HEADER_BYTES + pos * INDEX_BYTES, r.score);
+
+        count++;
+        index.putLong(COUNT_OFFSET, count);
+        records.putLong(COUNT_OFFSET, count);
+        return pos + 1;
+    }
+
+    public synchronized void force() {
+        index.force();
+        records.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        recordFile.close();
+        indexFile.close();
+    }
+
+    private int higherCount(int score) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (indexScore(mid) > score) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int higherOrEqualCount(int score) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (indexScore(mid) >= score) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // moves entries pos .. count - 1 up one slot with a single bulk copy
+    private void shiftIndex(int pos) {
+        if (pos == count) return;
+        ByteBuffer from = index.duplicate();
+        from.limit(HEADER_BYTES + count * INDEX_BYTES).position(HEADER_BYTES + pos * INDEX_BYTES);
+        ByteBuffer to = index.duplicate();
+        to.position(HEADER_BYTES + (pos + 1) * INDEX_BYTES);
+        to.put(from);
+    }
+
+    private int indexScore(int i) { return index.getInt(HEADER_BYTES + i * INDEX_BYTES); }
+
+    private void rebuildIndex() {
+        int[] scores = new int[count];
+        for (int id = 0; id < count; id++) scores[id] = ~records.getInt(HEADER_BYTES + id * RECORD_BYTES + 8);
+        Arrays.sort(scores);
+        for (int i = 0; i < count; i++) index.putInt(HEADER_BYTES + i * INDEX_BYTES, ~scores[i]);
+        writeHeader(index, MAGIC_INDEX, INDEX_VERSION, count);
+    }
+
+    private void map(int newCapacity) throws IOException {
+        capacity = newCapacity;
+        records = recordFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * RECORD_BYTES);
+        index = indexFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * INDEX_BYTES);
+    }
+
+    private static void writeHeader(MappedByteBuffer buffer, int magic, int version, long count) {
+        buffer.putInt(0, magic);
+        buffer.putInt(4, version);
+        buffer.putLong(COUNT_OFFSET, count);
+    }
+}
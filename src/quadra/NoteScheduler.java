@@ -0,0 +1,142 @@
+package quadra;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.sound.midi.MidiChannel;
+
+public class NoteScheduler implements Runnable {
+
+    private static final int CAPACITY = 256;
+    private static final long COALESCE_NANOS = TimeUnit.MILLISECONDS.toNanos(30);
+    private static final int NOTE_ON = 1;
+    private static final int NOTE_OFF = 0;
+
+    private final MidiChannel channel;
+    private final int maxVoices;
+    private final Thread thread;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final long[] times = new long[CAPACITY];
+    private final int[] events = new int[CAPACITY];
+    private int size;
+    private final long[] lastStart = new long[128];
+    private volatile boolean running = true;
+
+    private final int[] voices = new int[128];
+    // each note on/off pair carries an id so a dropped note's off cannot be matched to another voice of the same note
+    private final int[] freeIds = new int[CAPACITY];
+    private int freeCount = CAPACITY;
+    private final boolean[] droppedIds = new boolean[CAPACITY];
+    private int activeVoices;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public NoteScheduler(MidiChannel channel, int maxVoices) {
+        this.channel = channel;
+        this.maxVoices = maxVoices;
+        for (int i = 0; i < CAPACITY; i++) freeIds[i] = i;
+        this.thread = new Thread(this, "quadra-audio");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public void play(int note, int velocity, int durationMillis, int delayMillis) {
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        lock.lock();
+        try {
+            if (start - lastStart[note] < COALESCE_NANOS && lastStart[note] != 0) return;
+            if (size + 2 > CAPACITY) { dropped.incrementAndGet(); return; }
+            lastStart[note] = start;
+            int id = freeIds[--freeCount] << 17;
+            push(start, id | NOTE_ON << 16 | note << 8 | velocity);
+            push(start + TimeUnit.MILLISECONDS.toNanos(durationMillis), id | NOTE_OFF << 16 | note << 8);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDroppedCount() { return dropped.get(); }
+
+    public void shutdown() {
+        running = false;
+        thread.interrupt();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            int event;
+            lock.lock();
+            try {
+                long wait = size == 0 ? Long.MAX_VALUE : times[0] - System.nanoTime();
+                if (wait > 0) {
+                    if (wait == Long.MAX_VALUE) changed.await();
+                    else changed.awaitNanos(wait);
+                    continue;
+                }
+                event = pop();
+                if ((event >> 16 & 1) == NOTE_OFF) freeIds[freeCount++] = event >>> 17;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            dispatch(event);
+        }
+    }
+
+    private void dispatch(int event) {
+        int note = event >> 8 & 0x7F;
+        int id = event >>> 17;
+        if ((event >> 16 & 1) == NOTE_ON) {
+            if (activeVoices >= maxVoices) {
+                droppedIds[id] = true;
+                dropped.incrementAndGet();
+                return;
+            }
+            voices[note]++;
+            channel.noteOn(note, event & 0x7F);
+            activeVoices++;
+        } else if (droppedIds[id]) {
+            droppedIds[id] = false;
+        } else if (voices[note] > 0) {
+            activeVoices--;
+            if (--voices[note] == 0) channel.noteOff(note);
+        }
+    }
+
+    private void push(long time, int event) {
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (times[parent] - time <= 0) break;
+            times[i] = times[parent];
+            events[i] = events[parent];
+            i = parent;
+        }
+        times[i] = time;
+        events[i] = event;
+    }
+
+    private int pop() {
+        int result = events[0];
+        long time = times[--size];
+        int event = events[size];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && times[child + 1] - times[child] < 0) child++;
+            if (time - times[child] <= 0) break;
+            times[i] = times[child];
+            events[i] = events[child];
+            i = child;
+        }
+        times[i] = time;
+        events[i] = event;
+        return result;
+    }
+}
@@ -0,0 +1,157 @@
+package quadra;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.util.Arrays;
+
+public class ParticleSystem {
+
+    private static final int ALPHA_LEVELS = 32;
+    private static final float GRAVITY = 0.2f;
+    private static final float FADE = 0.03f;
+
+    private final int capacity;
+    private final float[] x;
+    private final float[] y;
+    private final float[] vx;
+    private final float[] vy;
+    private final float[] life;
+    private final byte[] size;
+    private final byte[] color;
+    private int count;
+    // bounding box of the live particles as of the last update(), in the units they are drawn in
+    private int minX, minY, maxX, maxY;
+
+    private final Color[] bucketColors;
+    private final int[] bucketStart;
+    private final int[] bucketOf;
+    private final int[] order;
+
+    private int seed;
+
+    public ParticleSystem(int capacity, Color[] palette, int seed) {
+        if (palette.length > Byte.MAX_VALUE) throw new IllegalArgumentException("palette too large: " + palette.length);
+        this.capacity = capacity;
+        this.x = new float[capacity];
+        this.y = new float[capacity];
+        this.vx = new float[capacity];
+        this.vy = new float[capacity];
+        this.life = new float[capacity];
+        this.size = new byte[capacity];
+        this.color = new byte[capacity];
+        this.bucketColors = new Color[palette.length * ALPHA_LEVELS];
+        this.bucketStart = new int[palette.length * ALPHA_LEVELS + 1];
+        this.bucketOf = new int[capacity];
+        this.order = new int[capacity];
+        this.seed = seed == 0 ? 0x9E3779B9 : seed;
+        for (int c = 0; c < palette.length; c++) for (int a = 0; a < ALPHA_LEVELS; a++) {
+            Color base = palette[c];
+            int alpha = Math.round(base.getAlpha() * a / (float) (ALPHA_LEVELS - 1));
+            bucketColors[c * ALPHA_LEVELS + a] = new Color(base.getRed(), base.getGreen(), base.getBlue(), alpha);
+        }
+    }
+
+    public int size() { return count; }
+    public int capacity() { return capacity; }
+    public int getMinX() { return minX; }
+    public int getMinY() { return minY; }
+    public int getMaxX() { return maxX; }
+    public int getMaxY() { return maxY; }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public int spawn(float px, float py, int colorIndex, int amount) {
+        int spawned = Math.min(amount, capacity - count);
+        for (int n = 0; n < spawned; n++) {
+            int i = count++;
+            x[i] = px;
+            y[i] = py;
+            size[i] = (byte) (nextInt(6) + 2);
+            vx[i] = nextFloat() * 4 - 2;
+            vy[i] = nextFloat() * 4 - 2;
+            life[i] = 1.0f;
+            color[i] = (byte) colorIndex;
+        }
+        return spawned;
+    }
+
+    public void update() {
+        float left = Float.MAX_VALUE, top = Float.MAX_VALUE, right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+        int i = 0;
+        while (i < count) {
+            x[i] += vx[i];
+            y[i] += vy[i];
+            vy[i] += GRAVITY;
+            life[i] -= FADE;
+            if (life[i] > 0) {
+                left = Math.min(left, x[i]);
+                top = Math.min(top, y[i]);
+                right = Math.max(right, x[i] + size[i]);
+                bottom = Math.max(bottom, y[i] + size[i]);
+                i++;
+                continue;
+            }
+            int last = --count;
+            x[i] = x[last];
+            y[i] = y[last];
+            vx[i] = vx[last];
+            vy[i] = vy[last];
+            life[i] = life[last];
+            size[i] = size[last];
+            color[i] = color[last];
+        }
+        if (count == 0) {
+            minX = minY = maxX = maxY = 0;
+            return;
+        }
+        minX = (int) Math.floor(left);
+        minY = (int) Math.floor(top);
+        maxX = (int) Math.ceil(right) + 1;
+        maxY = (int) Math.ceil(bottom) + 1;
+    }
+
+    public void draw(Graphics2D g) {
+        if (count == 0) return;
+        int buckets = bucketStart.length - 1;
+        Arrays.fill(bucketStart, 0);
+        for (int i = 0; i < count; i++) {
+            int alpha = Math.round(Math.min(1f, life[i]) * (ALPHA_LEVELS - 1));
+            int bucket = color[i] * ALPHA_LEVELS + alpha;
+            bucketOf[i] = bucket;
+            bucketStart[bucket + 1]++;
+        }
+        for (int b = 0; b < buckets; b++) bucketStart[b + 1] += bucketStart[b];
+        for (int i = 0; i < count; i++) order[bucketStart[bucketOf[i]]++] = i;
+
+        int start = 0;
+        for (int b = 0; b < buckets; b++) {
+            int end = bucketStart[b];
+            if (end == start) continue;
+            g.setColor(bucketColors[b]);
+            for (int k = start; k < end; k++) {
+                int i = order[k];
+                g.fillRect((int) x[i], (int) y[i], size[i], size[i]);
+            }
+            start = end;
+        }
+    }
+
+    private int nextInt(int bound) {
+        return (int) (((nextBits() & 0xFFFFFFFFL) * bound) >>> 32);
+    }
+
+    private float nextFloat() {
+        return (nextBits() >>> 8) * 0x1.0p-24f;
+    }
+
+    private int nextBits() {
+        int s = seed;
+        s ^= s << 13;
+        s ^= s >>> 17;
+        s ^= s << 5;
+        seed = s;
+        return s;
+    }
+}
@@ -0,0 +1,195 @@
+package quadra;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+public class PerfStats {
+
+    private static final long SAMPLE_NANOS = 1_000_000_000L;
+
+    @Name("quadra.Frame")
+    @Label("Frame")
+    @Category("Quadra")
+    @StackTrace(false)
+    public static final class FrameEvent extends Event {
+        @Label("Particles")
+        int particles;
+    }
+
+    @Name("quadra.Update")
+    @Label("Frame Update")
+    @Category("Quadra")
+    @StackTrace(false)
+    public static final class UpdateEvent extends Event {
+    }
+
+    @Name("quadra.Tick")
+    @Label("Logic Tick")
+    @Category("Quadra")
+    @StackTrace(false)
+    public static final class TickEvent extends Event {
+        @Label("Tick")
+        long tick;
+    }
+
+    @Name("quadra.PerfSample")
+    @Label("Performance Sample")
+    @Category("Quadra")
+    @StackTrace(false)
+    static final class SampleEvent extends Event {
+        @Label("FPS") int fps;
+        @Label("Frame p50") @Timespan long frameP50;
+        @Label("Frame p99") @Timespan long frameP99;
+        @Label("Update p99") @Timespan long updateP99;
+        @Label("Tick p99") @Timespan long tickP99;
+        @Label("Input Latency p99") @Timespan long inputP99;
+        @Label("Particles") int particles;
+        @Label("Allocation Rate") @DataAmount long allocationRate;
+        @Label("GC Pauses") int gcPauses;
+        @Label("GC Pause Max") @Timespan long gcPauseMax;
+        @Label("Dropped Events") long droppedEvents;
+    }
+
+    // a committed JFR event keeps its first duration, so events cannot be reused; these instances only answer
+    // isEnabled() and a new event is allocated while a recording wants it, leaving the hot paths allocation-free
+    private static final FrameEvent FRAME_PROBE = new FrameEvent();
+    private static final UpdateEvent UPDATE_PROBE = new UpdateEvent();
+    private static final TickEvent TICK_PROBE = new TickEvent();
+
+    static FrameEvent beginFrame() {
+        if (!FRAME_PROBE.isEnabled()) return null;
+        FrameEvent event = new FrameEvent();
+        event.begin();
+        return event;
+    }
+
+    static UpdateEvent beginUpdate() {
+        if (!UPDATE_PROBE.isEnabled()) return null;
+        UpdateEvent event = new UpdateEvent();
+        event.begin();
+        return event;
+    }
+
+    static TickEvent beginTick() {
+        if (!TICK_PROBE.isEnabled()) return null;
+        TickEvent event = new TickEvent();
+        event.begin();
+        return event;
+    }
+
+    private final LatencyRecorder frames = new LatencyRecorder();
+    private final LatencyRecorder updates = new LatencyRecorder();
+    private final LatencyRecorder ticks = new LatencyRecorder();
+    private final LatencyRecorder inputs = new LatencyRecorder();
+    private final LatencyRecorder gcPauses = new LatencyRecorder();
+    private final LatencyRecorder.Interval frame = new LatencyRecorder.Interval();
+    private final LatencyRecorder.Interval update = new LatencyRecorder.Interval();
+    private final LatencyRecorder.Interval tick = new LatencyRecorder.Interval();
+    private final LatencyRecorder.Interval input = new LatencyRecorder.Interval();
+    private final LatencyRecorder.Interval gc = new LatencyRecorder.Interval();
+
+    private final com.sun.management.ThreadMXBean threads;
+    private long lastSample = System.nanoTime();
+    private long lastAllocated;
+    private String[] lines = {"FPS: --"};
+
+    public PerfStats() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+            lastAllocated = allocatedBytes();
+        } else {
+            threads = null;
+        }
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            if (collector instanceof NotificationEmitter)
+                ((NotificationEmitter) collector).addNotificationListener(this::onGc, null, null);
+    }
+
+    public void recordFrame(long nanos) { frames.record(nanos); }
+    public void recordUpdate(long nanos) { updates.record(nanos); }
+    public void recordTick(long nanos) { ticks.record(nanos); }
+    public void recordInput(long nanos) { inputs.record(nanos); }
+
+    public String[] getLines() { return lines; }
+
+    // droppedEvents is the running total of events the ring's consumers lost to overrun
+    public boolean sample(int particles, long droppedEvents) {
+        long now = System.nanoTime();
+        long elapsed = now - lastSample;
+        if (elapsed < SAMPLE_NANOS) return false;
+        lastSample = now;
+        frames.sample(frame);
+        updates.sample(update);
+        ticks.sample(tick);
+        inputs.sample(input);
+        gcPauses.sample(gc);
+        long allocated = allocatedBytes();
+        long allocationRate = Math.max(0, allocated - lastAllocated) * SAMPLE_NANOS / elapsed;
+        lastAllocated = allocated;
+        int fps = (int) Math.round(frame.getCount() * 1e9 / elapsed);
+
+        lines = new String[] {
+            "FPS: " + fps,
+            "Quadro: p50 " + millis(frame.getPercentile(50)) + "  p99 " + millis(frame.getPercentile(99)),
+            "Atualizacao: p99 " + millis(update.getPercentile(99)),
+            "Tick: p99 " + millis(tick.getPercentile(99)) + "  max " + millis(tick.getMax()),
+            "Entrada: p50 " + millis(input.getPercentile(50)) + "  p99 " + millis(input.getPercentile(99)),
+            "Particulas: " + particles,
+            "Alocacao: " + (threads == null ? "--" : String.format(Locale.ROOT, "%.1f MB/s", allocationRate / 1e6)),
+            "GC: " + gc.getCount() + " pausas, max " + millis(gc.getMax()),
+            "Eventos perdidos: " + droppedEvents,
+        };
+
+        SampleEvent event = new SampleEvent();
+        if (event.shouldCommit()) {
+            event.fps = fps;
+            event.frameP50 = frame.getPercentile(50);
+            event.frameP99 = frame.getPercentile(99);
+            event.updateP99 = update.getPercentile(99);
+            event.tickP99 = tick.getPercentile(99);
+            event.inputP99 = input.getPercentile(99);
+            event.particles = particles;
+            event.allocationRate = allocationRate;
+            event.gcPauses = (int) gc.getCount();
+            event.gcPauseMax = gc.getMax();
+            event.droppedEvents = droppedEvents;
+            event.commit();
+        }
+        return true;
+    }
+
+    private void onGc(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        if (info.getGcAction().contains("concurrent") || info.getGcName().endsWith("Cycles")) return;
+        gcPauses.record(info.getGcInfo().getDuration() * 1_000_000L);
+    }
+
+    private long allocatedBytes() {
+        if (threads == null) return 0;
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) if (bytes > 0) total += bytes;
+        return total;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f ms", nanos / 1e6);
+    }
+}
@@ -0,0 +1,62 @@
+package quadra;
+
+public final class PieceTable {
+
+    public static final int PIECE_TYPES = 7;
+    public static final int ROTATIONS = 4;
+    public static final int O_PIECE = 5;
+
+    private static final int[][][] TETROMINOS = {
+        {{0,0,0,0}, {0,0,0,0}, {0,0,0,0}, {0,0,0,0}},
+        {{1,1,1,1}, {0,0,0,0}, {0,0,0,0}, {0,0,0,0}},
+        {{1,1,0,0}, {0,1,1,0}, {0,0,0,0}, {0,0,0,0}},
+        {{0,1,1,0}, {1,1,0,0}, {0,0,0,0}, {0,0,0,0}},
+        {{0,1,0,0}, {1,1,1,0}, {0,0,0,0}, {0,0,0,0}},
+        {{1,1,0,0}, {1,1,0,0}, {0,0,0,0}, {0,0,0,0}},
+        {{0,0,1,0}, {1,1,1,0}, {0,0,0,0}, {0,0,0,0}},
+        {{1,0,0,0}, {1,1,1,0}, {0,0,0,0}, {0,0,0,0}}
+    };
+
+    private static final int[][][] MASKS = new int[PIECE_TYPES + 1][ROTATIONS][];
+    private static final int[][] MIN_X = new int[PIECE_TYPES + 1][ROTATIONS];
+    private static final int[][] MAX_X = new int[PIECE_TYPES + 1][ROTATIONS];
+    private static final int[][] MIN_Y = new int[PIECE_TYPES + 1][ROTATIONS];
+    private static final int[][] MAX_Y = new int[PIECE_TYPES + 1][ROTATIONS];
+
+    static {
+        for (int type = 0; type <= PIECE_TYPES; type++) {
+            int[][] shape = TETROMINOS[type];
+            for (int rot = 0; rot < ROTATIONS; rot++) {
+                int[] masks = new int[4];
+                int minX = 4, maxX = -1, minY = 4, maxY = -1;
+                for (int i = 0; i < 4; i++) for (int j = 0; j < 4; j++) if (shape[i][j] != 0) {
+                    masks[i] |= 1 << j;
+                    minX = Math.min(minX, j); maxX = Math.max(maxX, j);
+                    minY = Math.min(minY, i); maxY = Math.max(maxY, i);
+                }
+                MASKS[type][rot] = masks;
+                MIN_X[type][rot] = minX; MAX_X[type][rot] = maxX;
+                MIN_Y[type][rot] = minY; MAX_Y[type][rot] = maxY;
+                if (type != O_PIECE) shape = rotateClockwise(shape);
+            }
+        }
+    }
+
+    private PieceTable() {}
+
+    private static int[][] rotateClockwise(int[][] shape) {
+        int[][] rotated = new int[4][4];
+        for (int i = 0; i < 4; i++) for (int j = 0; j < 4; j++) rotated[j][3 - i] = shape[i][j];
+        return rotated;
+    }
+
+    // the shared table row masks: callers read them in place and must never write to them
+    static int[] masks(int type, int rotation) { return MASKS[type][rotation]; }
+    public static int mask(int type, int rotation, int row) { return MASKS[type][rotation][row]; }
+    public static int minX(int type, int rotation) { return MIN_X[type][rotation]; }
+    public static int maxX(int type, int rotation) { return MAX_X[type][rotation]; }
+    public static int minY(int type, int rotation) { return MIN_Y[type][rotation]; }
+    public static int maxY(int type, int rotation) { return MAX_Y[type][rotation]; }
+
+    public static int nextRotation(int rotation) { return (rotation + 1) & (ROTATIONS - 1); }
+}
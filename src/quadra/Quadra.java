@@ -0,0 +1,1145 @@
+package quadra;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.geom.Path2D;
+import java.awt.image.VolatileImage;
+import java.io.*;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import javax.sound.midi.*;
+
+public class Quadra extends JPanel implements ActionListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private enum State {
+        MENU, PLAYING, GAME_OVER, INSTRUCTIONS, CREDITS
+    }
+    private State currentState = State.MENU;
+
+    private final int BLOCK_SIZE = 30;
+    private final int BOARD_PIXELS = 600;
+    private static final int SIDE_PANEL_WIDTH = 300;
+    private int playWidth = 10;
+    private int playHeight = 20;
+    private int boardWidth;
+    private int blockSize;
+    private int viewRows;
+    private int panelWidth;
+    private int panelHeight;
+    private final int PREVIEW_SIZE = 25;
+    private final int SMALL_PREVIEW_SIZE = 12;
+    private final int NEXT_PREVIEW_Y = 310;
+
+    private int menuOption = 0;
+    private final String[] menuOptions = {"JOGAR", "DEMO", "TUTORIAL", "CREDITOS", "SAIR"};
+    
+    private int gameOverOption = 0;
+    private final String[] gameOverOptions = {"TENTAR NOVAMENTE", "VOLTAR AO MENU"};
+
+    // stopped whenever nothing animates; input, state changes and redrawAll() start it again
+    private final Timer gameLoop = new Timer(16, this);
+    private ActiveView activeView;
+
+    private GameSnapshot layerSnapshot;
+    private CachedLayer staticLayer;
+    private CachedLayer stackLayer;
+
+    private boolean isPaused = false;
+    private int highScore = 0;
+    private volatile int gameOverRank;
+    private volatile boolean newRecord;
+    private volatile boolean spectating;
+    private final ScoreStore scores = new ScoreStore(new File("."));
+
+    private final GameEngine game = new GameEngine();
+    private final GameLoop logic = new GameLoop(game, this::drainLogicEvents);
+    private static final int EVENT_BATCH = 256;
+    private final EventRing events = new EventRing(4096);
+    private final EventRing.Consumer audioEvents = events.newConsumer();
+    private final EventRing.Consumer visualEvents = events.newConsumer();
+    private final EventRing.Handler audioHandler = this::onAudioEvent;
+    private final EventRing.Handler visualHandler = this::onVisualEvent;
+
+    private float rainbowHue = 0;
+
+    private final Color[] pieceColors = {
+        new Color(0,0,0),
+        new Color(0, 240, 240),
+        new Color(240, 0, 0),
+        new Color(0, 240, 0),
+        new Color(160, 0, 240),
+        new Color(240, 240, 0),
+        new Color(240, 160, 0),
+        new Color(0, 0, 240),
+        new Color(110, 110, 120)
+    };
+
+    private final Color BACKGROUND = new Color(15, 15, 20);
+    private final Color MENU_BACKGROUND = new Color(20, 20, 30);
+    private final Color BOARD_BACKGROUND = new Color(30, 30, 40);
+    private final Color GRID_COLOR = new Color(255, 255, 255, 10);
+    private final Color GHOST_COLOR = new Color(255, 255, 255, 30);
+    private final Color BLOCK_HIGHLIGHT = new Color(255, 255, 255, 100);
+    private final Color TITLE_SHADOW = new Color(0, 0, 0, 100);
+    private final Color GAME_OVER_SHADE = new Color(0, 0, 0, 220);
+    private final Color PAUSE_SHADE = new Color(0, 0, 0, 150);
+    private final Color[] rainbowColors = new Color[101];
+    private final int PARTICLE_WHITE = 8;
+    private final int PARTICLE_YELLOW = 9;
+    private final ParticleSystem particles = new ParticleSystem(32768, particlePalette(), (int) System.nanoTime());
+
+    private final Font SEGOE = new Font("Segoe UI", Font.PLAIN, 1);
+    private final Font CONSOLAS = new Font("Consolas", Font.PLAIN, 1);
+    private final Font TITLE_FONT = SEGOE.deriveFont(Font.BOLD, 55f);
+    private final Font HEADING_FONT = SEGOE.deriveFont(Font.BOLD, 40f);
+    private final Font SCREEN_TITLE_FONT = SEGOE.deriveFont(Font.BOLD, 30f);
+    private final Font OPTION_FONT = SEGOE.deriveFont(Font.BOLD, 25f);
+    private final Font COMBO_FONT = SEGOE.deriveFont(Font.BOLD, 20f);
+    private final Font LABEL_FONT = SEGOE.deriveFont(Font.BOLD, 16f);
+    private final Font SCORE_FONT = SEGOE.deriveFont(Font.PLAIN, 20f);
+    private final Font TEXT_FONT = SEGOE.deriveFont(Font.PLAIN, 18f);
+    private final Font SMALL_FONT = SEGOE.deriveFont(Font.PLAIN, 16f);
+    private final Font HINT_FONT = SEGOE.deriveFont(Font.PLAIN, 14f);
+    private final Font RECORD_FONT = CONSOLAS.deriveFont(Font.BOLD, 20f);
+    private final Font STATS_FONT = CONSOLAS.deriveFont(Font.PLAIN, 16f);
+
+    private final TextCache text = new TextCache();
+    private final TextCache.Label menuRecordLabel = new TextCache.Label("Recorde Atual: ", RECORD_FONT);
+    private final TextCache.Label recordLabel = new TextCache.Label("Recorde: ", STATS_FONT);
+    private final TextCache.Label scoreLabel = new TextCache.Label("Score: ", STATS_FONT);
+    private final TextCache.Label levelLabel = new TextCache.Label("Level: ", STATS_FONT);
+    private final TextCache.Label linesLabel = new TextCache.Label("Linhas: ", STATS_FONT);
+    private final TextCache.Label comboLabel = new TextCache.Label("COMBO x", COMBO_FONT);
+    private final TextCache.Label finalScoreLabel = new TextCache.Label("Score Final: ", SCORE_FONT);
+    private final TextCache.Label rankLabel = new TextCache.Label("Ranking: #", STATS_FONT);
+    private final TextCache.Label placeLabel = new TextCache.Label("Posicao: #", STATS_FONT);
+    private final TextCache.Label lobbyLabel = new TextCache.Label("Jogadores na sala: ", SMALL_FONT);
+    private final String[] selectedMenuOptions = new String[menuOptions.length];
+    private final String[] selectedGameOverOptions = new String[gameOverOptions.length];
+
+    private final AllocationCounter renderAllocations = new AllocationCounter();
+    private final PerfStats perf = new PerfStats();
+    private final Font PERF_FONT = CONSOLAS.deriveFont(Font.PLAIN, 12f);
+    private final Color PERF_SHADE = new Color(0, 0, 0, 170);
+    private boolean showPerf;
+    private volatile VersusClient versus;
+    private String versusHost = "localhost";
+    private int versusPort = VersusProtocol.DEFAULT_PORT;
+    private GameSnapshot latencySnapshot;
+
+    private final int MENU_IDLE_MILLIS = 30000;
+    private final int TITLE_TOP = 80;
+    private final int TITLE_HEIGHT = 110;
+    private final DamageTracker damage = new DamageTracker();
+    private final Rectangle[] damageRects = new Rectangle[DamageTracker.MAX_RECTS];
+    private final Path2D.Float damageClip = new Path2D.Float();
+    private VolatileImage frameImage;
+    private volatile boolean damageAll = true;
+    private long lastInputMillis = System.currentTimeMillis();
+    // what the last damage pass put on screen
+    private State paintedState;
+    private boolean paintedLobby;
+    private int paintedOverlay;
+    private GameSnapshot paintedSnapshot;
+    private int paintedPieceKey = -1;
+    private int paintedRecord;
+    private GameSnapshot[] paintedOpponents;
+    private final Rectangle paintedPiece = new Rectangle();
+    private final Rectangle paintedGhost = new Rectangle();
+    private final Rectangle paintedParticles = new Rectangle();
+    private final Rectangle bounds = new Rectangle();
+    private final boolean reportAllocations = Boolean.getBoolean("quadra.allocStats");
+    static final String REPLAY_FILE = "last-replay.qrp";
+    static final long LAUNCH_NANOS = System.nanoTime();
+    static final boolean STARTUP_STATS = Boolean.getBoolean("quadra.startupStats");
+    private long firstFrameNanos;
+    private long lastAllocationReport = System.currentTimeMillis();
+
+    public static class AudioPlayer {
+        private static volatile Sequencer sequencer;
+        private static volatile Synthesizer synthesizer;
+        private static volatile NoteScheduler notes;
+        private static volatile boolean musicWanted;
+        private static volatile boolean silent = Boolean.getBoolean("quadra.silent") || GraphicsEnvironment.isHeadless();
+        private static volatile long readyNanos;
+
+        public static void setSilent(boolean value) { silent = value; }
+        public static boolean isSilent() { return silent; }
+        public static boolean isReady() { return readyNanos != 0; }
+
+        public static void initAsync() {
+            if (silent) return;
+            Thread loader = new Thread(AudioPlayer::init, "quadra-audio-init");
+            loader.setDaemon(true);
+            loader.start();
+        }
+
+        public static void init() {
+            if (silent) return;
+            try {
+                Synthesizer synth = MidiSystem.getSynthesizer();
+                synth.open();
+                MidiChannel channel = synth.getChannels()[0];
+                channel.programChange(80);
+                synthesizer = synth;
+                notes = new NoteScheduler(channel, 8);
+
+                Sequencer seq = MidiSystem.getSequencer();
+                seq.open();
+                
+                Sequence sequence = createTetrisTheme();
+                seq.setSequence(sequence);
+                seq.setLoopCount(Sequencer.LOOP_CONTINUOUSLY);
+                sequencer = seq;
+                if (musicWanted) startMusic();
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                readyNanos = System.nanoTime();
+                if (STARTUP_STATS) System.out.printf("startup: audio ready after %.1f ms%n", (readyNanos - LAUNCH_NANOS) / 1e6);
+            }
+        }
+        
+        public static void startMusic() {
+            musicWanted = true;
+            Sequencer seq = sequencer;
+            if (seq != null && !seq.isRunning()) seq.start();
+        }
+        
+        public static void stopMusic() {
+            musicWanted = false;
+            Sequencer seq = sequencer;
+            if (seq != null && seq.isRunning()) seq.stop();
+        }
+
+        public static void playMove() { playNote(60, 50); }
+        public static void playRotate() { playNote(75, 50); }
+        public static void playDrop() { playNote(40, 100); }
+        public static void playHold() { playNote(65, 100); }
+        public static void playClear() {
+            playNote(72, 80, 0);
+            playNote(76, 80, 50);
+            playNote(79, 150, 100);
+        }
+        public static void playGameOver() {
+            stopMusic();
+            playNote(55, 300, 0);
+            playNote(51, 300, 250);
+            playNote(48, 800, 500);
+        }
+
+        private static void playNote(int note, int duration) {
+            playNote(note, duration, 0);
+        }
+
+        private static void playNote(int note, int duration, int delay) {
+            NoteScheduler scheduler = notes;
+            if (scheduler == null) return;
+            scheduler.play(note, 90, duration, delay);
+        }
+
+        private static Sequence createTetrisTheme() throws InvalidMidiDataException {
+            Sequence seq = new Sequence(Sequence.PPQ, 4);
+            Track track = seq.createTrack();
+            
+            track.add(new MidiEvent(new ShortMessage(ShortMessage.PROGRAM_CHANGE, 0, 19, 0), 0));
+            int[] notes = {
+                76, 71, 72, 74, 72, 71, 69, 69, 72, 76, 74, 72, 71, 71, 72, 74, 76, 72, 69, 69,
+                74, 77, 81, 79, 77, 76, 72, 76, 74, 72, 71, 71, 72, 74, 76, 72, 69, 69
+            };
+            int[] durs = {
+                4, 2, 2, 4, 2, 2, 4, 2, 2, 4, 2, 2, 4, 2, 2, 4, 4, 4, 4, 4,
+                6, 2, 4, 2, 2, 6, 2, 4, 2, 2, 4, 2, 2, 4, 4, 4, 4, 4
+            };
+
+            int currentTick = 0;
+            for (int i = 0; i < notes.length; i++) {
+                addNote(track, 0, notes[i], currentTick, durs[i]);
+                currentTick += durs[i];
+            }
+            return seq;
+        }
+
+        private static void addNote(Track track, int ch, int key, long tick, int dur) throws InvalidMidiDataException {
+            track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, ch, key, 100), tick));
+            track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, ch, key, 100), tick + dur));
+        }
+    }
+
+    private Color[] particlePalette() {
+        Color[] palette = new Color[PARTICLE_YELLOW + 1];
+        System.arraycopy(pieceColors, 0, palette, 0, pieceColors.length);
+        palette[PARTICLE_WHITE] = Color.WHITE;
+        palette[PARTICLE_YELLOW] = Color.YELLOW;
+        return palette;
+    }
+
+    public Quadra() {
+        layoutBoard(playWidth, playHeight);
+        setPreferredSize(new Dimension(panelWidth, panelHeight));
+        setBackground(Color.BLACK);
+        setFocusable(true);
+        attachInput(this);
+
+        for (int i = 0; i < rainbowColors.length; i++) rainbowColors[i] = Color.getHSBColor(i / 100f, 0.8f, 1.0f);
+        for (int i = 0; i < menuOptions.length; i++) selectedMenuOptions[i] = "> " + menuOptions[i] + " <";
+        for (int i = 0; i < gameOverOptions.length; i++) selectedGameOverOptions[i] = "> " + gameOverOptions[i] + " <";
+        for (int i = 0; i < damageRects.length; i++) damageRects[i] = new Rectangle();
+
+        highScore = scores.load();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            logic.shutdown(500);
+            scores.close();
+        }, "quadra-io-flush"));
+        game.setEventRing(events);
+        logic.setPerfStats(perf);
+        logic.setSaveSink(scores::saveState);
+        logic.setGameOverHandler(this::onGameOver);
+        AudioPlayer.initAsync();
+        AudioPlayer.startMusic();
+        logic.start();
+        GameState saved = scores.loadState();
+        if (saved != null && !saved.isGameOver()) resumeGame(saved);
+        gameLoop.start();
+    }
+
+    void attachInput(Component target) {
+        target.addKeyListener(new TAdapter());
+        target.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                logic.getKeys().releaseAll();
+                if (currentState == State.PLAYING && !isPaused && versus == null) setPaused(true);
+            }
+        });
+    }
+
+    void setActiveView(ActiveView view) {
+        activeView = view;
+        redrawAll();
+    }
+
+    void setRandomizer(int kind) {
+        logic.setRandomizer(kind);
+    }
+
+    void setBoardSize(int width, int height) {
+        logic.setBoardSize(width, height);
+        playWidth = width;
+        playHeight = height;
+    }
+
+    // wide boards shrink the blocks; tall boards show BOARD_PIXELS worth of rows and scroll
+    private void layoutBoard(int width, int height) {
+        boardWidth = width;
+        blockSize = Math.min(BLOCK_SIZE, BOARD_PIXELS / width);
+        viewRows = Math.min(height, BOARD_PIXELS / blockSize);
+        panelWidth = width * blockSize + SIDE_PANEL_WIDTH;
+        panelHeight = Math.max(BOARD_PIXELS, viewRows * blockSize);
+        staticLayer = new CachedLayer(panelWidth, panelHeight, false, this::drawStaticLayer);
+        stackLayer = new CachedLayer(width * blockSize, viewRows * blockSize, true, this::drawStackLayer);
+        logic.setViewRows(viewRows);
+        redrawAll();
+    }
+
+    void redrawAll() {
+        damageAll = true;
+        if (!gameLoop.isRunning()) gameLoop.start();
+    }
+
+    private void startGame() {
+        closeVersus();
+        layoutBoard(playWidth, playHeight);
+        setPaused(false);
+        particles.clear();
+        spectating = false;
+        currentState = State.PLAYING;
+        logic.startGame();
+    }
+
+    // the interrupted game comes back paused, exactly where it was
+    private void resumeGame(GameState state) {
+        closeVersus();
+        layoutBoard(state.getWidth(), state.getHeight());
+        setPaused(true);
+        particles.clear();
+        spectating = false;
+        currentState = State.PLAYING;
+        logic.resume(state);
+    }
+
+    private void startDemo() {
+        closeVersus();
+        layoutBoard(playWidth, playHeight);
+        setPaused(false);
+        particles.clear();
+        spectating = true;
+        currentState = State.PLAYING;
+        logic.startGame(new BeamSearchAI(BeamSearchAI.DEFAULT_BEAM_WIDTH, ForkJoinPool.commonPool()));
+    }
+
+    void startReplay(Replay replay, int speed) {
+        closeVersus();
+        layoutBoard(replay.getWidth(), replay.getHeight());
+        setPaused(false);
+        particles.clear();
+        spectating = true;
+        currentState = State.PLAYING;
+        logic.startReplay(replay, speed);
+    }
+
+    void startVersus(String host, int port) {
+        closeVersus();
+        versusHost = host;
+        versusPort = port;
+        try {
+            versus = VersusClient.connect(host, port, true);
+        } catch (IOException e) {
+            System.err.println("versus: " + e.getMessage());
+            currentState = State.MENU;
+            return;
+        }
+        layoutBoard(VersusProtocol.BOARD_WIDTH, VersusProtocol.BOARD_HEIGHT);
+        setPaused(false);
+        particles.clear();
+        spectating = false;
+        currentState = State.PLAYING;
+        logic.startVersus(versus);
+    }
+
+    private void closeVersus() {
+        VersusClient client = versus;
+        versus = null;
+        if (client != null) client.close();
+    }
+
+    private void setPaused(boolean paused) {
+        isPaused = paused;
+        logic.setPaused(paused);
+        redrawAll();
+    }
+
+    private static int inputFor(int key) {
+        switch (key) {
+            case KeyEvent.VK_LEFT: return GameEngine.INPUT_LEFT;
+            case KeyEvent.VK_RIGHT: return GameEngine.INPUT_RIGHT;
+            case KeyEvent.VK_DOWN: return GameEngine.INPUT_SOFT_DROP;
+            case KeyEvent.VK_UP: return GameEngine.INPUT_ROTATE;
+            case KeyEvent.VK_SPACE: return GameEngine.INPUT_HARD_DROP;
+            case KeyEvent.VK_C: return GameEngine.INPUT_HOLD;
+            default: return GameEngine.INPUT_NONE;
+        }
+    }
+
+    private void drainLogicEvents() {
+        audioEvents.poll(audioHandler, EVENT_BATCH);
+    }
+
+    private void onAudioEvent(int type, int a, int b, int c, int d, long tick) {
+        switch (type) {
+            case GameEngine.EVENT_MOVE: AudioPlayer.playMove(); break;
+            case GameEngine.EVENT_ROTATE: AudioPlayer.playRotate(); break;
+            case GameEngine.EVENT_HOLD: AudioPlayer.playHold(); break;
+            case GameEngine.EVENT_LOCK: AudioPlayer.playDrop(); break;
+            case GameEngine.EVENT_CLEAR: AudioPlayer.playClear(); break;
+            case GameEngine.EVENT_GAME_OVER: AudioPlayer.playGameOver(); break;
+        }
+    }
+
+    // on the logic thread, straight from GameLoop rather than through the lossy ring
+    private void onGameOver(int type, int a, int b, int c, int d, long tick) {
+        if (!spectating) {
+            gameOverRank = scores.rankOf(a);
+            newRecord = scores.isNewRecord(a);
+            scores.recordGame(new ScoreStore.Record(System.currentTimeMillis(), a, b, c, d, tick * GameEngine.TICK_MILLIS));
+            Replay replay = logic.getLastReplay();
+            if (replay != null) scores.saveReplay(REPLAY_FILE, replay);
+        }
+        SwingUtilities.invokeLater(() -> showGameOver(a));
+    }
+
+    private void onVisualEvent(int type, int a, int b, int c, int d, long tick) {
+        GameSnapshot shown = logic.getSnapshot();
+        int top = shown != null ? shown.viewTop : 0;
+        switch (type) {
+            case GameEngine.EVENT_HARD_DROP:
+                createExplosion((b + 2) * blockSize, (c + 2 - top) * blockSize, a);
+                break;
+            case GameEngine.EVENT_CLEAR:
+                for (int rows = a >>> 8; rows != 0; rows &= rows - 1)
+                    createExplosion((boardWidth * blockSize) / 2, (b - Integer.numberOfTrailingZeros(rows) - top) * blockSize, PARTICLE_WHITE);
+                if (c > highScore && !spectating) highScore = c;
+                break;
+            case GameEngine.EVENT_COMBO:
+                createExplosion(panelWidth/2, panelHeight/2, PARTICLE_YELLOW);
+                break;
+        }
+    }
+
+    private void showGameOver(int score) {
+        if (currentState != State.PLAYING) return;
+        currentState = State.GAME_OVER;
+        if (!spectating) highScore = Math.max(highScore, score);
+        gameOverOption = 0;
+        redrawAll();
+    }
+
+    private void createExplosion(int x, int y, int colorIndex) {
+        particles.spawn(x, y, colorIndex, 15);
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        PerfStats.UpdateEvent event = PerfStats.beginUpdate();
+        long start = System.nanoTime();
+        rainbowHue += 0.01f;
+        if (rainbowHue > 1.0f) rainbowHue = 0;
+        visualEvents.poll(visualHandler, EVENT_BATCH);
+        VersusClient client = versus;
+        if (client != null && client.isFinished() && currentState == State.PLAYING) {
+            if (client.isStarted()) {
+                currentState = State.GAME_OVER;
+                gameOverOption = 0;
+            } else {
+                System.err.println("versus: " + client.getError());
+                closeVersus();
+                currentState = State.MENU;
+            }
+        }
+        particles.update();
+        boolean animating = collectDamage();
+        perf.recordUpdate(System.nanoTime() - start);
+        if (event != null) event.commit();
+        long dropped = audioEvents.getDropped() + visualEvents.getDropped();
+        if (perf.sample(particles.size(), dropped) && showPerf) damage.add(4, 4, 230, perf.getLines().length * 15 + 8);
+        paintDamage();
+        if (!animating) {
+            gameLoop.stop();
+            if (damageAll) gameLoop.start();
+        }
+    }
+
+    // diffs the screen against the last pass and records only what changed; false when nothing animates
+    private boolean collectDamage() {
+        long now = System.currentTimeMillis();
+        VersusClient client = versus;
+        GameSnapshot snapshot = logic.getSnapshot();
+        boolean inLobby = client != null && !client.isStarted() && currentState == State.PLAYING;
+        boolean inGame = !inLobby && (currentState == State.PLAYING || currentState == State.GAME_OVER) && snapshot != null;
+        int overlay = overlayKey(client);
+        if (damageAll || currentState != paintedState || inLobby != paintedLobby || overlay != paintedOverlay) {
+            damageAll = false;
+            damage.markAll();
+        }
+        paintedState = currentState;
+        paintedLobby = inLobby;
+        paintedOverlay = overlay;
+
+        boolean animating = particles.size() > 0 || showPerf || client != null;
+        if (currentState == State.MENU) {
+            damage.add(0, TITLE_TOP, panelWidth, TITLE_HEIGHT);
+            animating |= now - lastInputMillis < MENU_IDLE_MILLIS;
+        }
+        if (inGame) {
+            damageGame(snapshot, client);
+            animating |= currentState == State.PLAYING && !isPaused;
+        } else {
+            paintedSnapshot = null;
+        }
+
+        if (particles.size() > 0) bounds.setBounds(particles.getMinX(), particles.getMinY(),
+                particles.getMaxX() - particles.getMinX(), particles.getMaxY() - particles.getMinY());
+        else bounds.setBounds(0, 0, 0, 0);
+        if (!bounds.isEmpty() || !paintedParticles.isEmpty()) {
+            damage(paintedParticles);
+            damage(bounds);
+            paintedParticles.setBounds(bounds);
+        }
+        return animating;
+    }
+
+    private int overlayKey(VersusClient client) {
+        int key = (gameOverRank * 31 + (newRecord ? 1 : 0)) * 31 + scores.getHighScore();
+        if (client != null) key = ((key * 31 + client.getPlace()) * 31 + client.getWinner()) * 31 + client.getWaiting() * 16 + client.getNeeded();
+        return key;
+    }
+
+    private void damageGame(GameSnapshot s, VersusClient client) {
+        GameSnapshot p = paintedSnapshot;
+        paintedSnapshot = s;
+        int boardPixels = boardWidth * blockSize, x = boardPixels + 40;
+        if (p == null || p.width != s.width || p.height != s.height || p.viewRows != s.viewRows) {
+            damage.markAll();
+            p = null;
+        } else if (p.boardVersion != s.boardVersion || p.viewTop != s.viewTop) {
+            int first = -1, last = -1;
+            for (int i = 0; i < s.viewRows; i++) if (!s.sameScreenRow(p, i)) {
+                if (first < 0) first = i;
+                last = i;
+            }
+            if (first >= 0) damage.add(0, first * blockSize, boardPixels, (last - first + 1) * blockSize);
+        }
+
+        boolean showPiece = currentState == State.PLAYING && !s.gameOver;
+        int pieceKey = showPiece ? (int) s.pieceCount << 5 | s.currentType << 2 | s.rotation : -1;
+        if (showPiece) {
+            int minX = PieceTable.minX(s.currentType, s.rotation), maxX = PieceTable.maxX(s.currentType, s.rotation) + 1;
+            int minY = PieceTable.minY(s.currentType, s.rotation), maxY = PieceTable.maxY(s.currentType, s.rotation) + 1;
+            int left = Math.min(s.prevX, s.x) + minX, right = Math.max(s.prevX, s.x) + maxX;
+            int top = Math.min(s.prevY, s.y) + minY - s.viewTop, bottom = Math.max(s.prevY, s.y) + maxY - s.viewTop;
+            bounds.setBounds(left * blockSize, top * blockSize, (right - left) * blockSize, (bottom - top) * blockSize);
+        } else {
+            bounds.setBounds(0, 0, 0, 0);
+        }
+        if (pieceKey != paintedPieceKey || s.prevX != s.x || s.prevY != s.y || !bounds.equals(paintedPiece)) {
+            damage(paintedPiece);
+            damage(bounds);
+            paintedPiece.setBounds(bounds);
+        }
+        if (showPiece) {
+            int minX = PieceTable.minX(s.currentType, s.rotation), minY = PieceTable.minY(s.currentType, s.rotation);
+            bounds.setBounds((s.x + minX) * blockSize, (s.ghostY + minY - s.viewTop) * blockSize,
+                    (PieceTable.maxX(s.currentType, s.rotation) + 1 - minX) * blockSize, (PieceTable.maxY(s.currentType, s.rotation) + 1 - minY) * blockSize);
+        }
+        if (pieceKey != paintedPieceKey || !bounds.equals(paintedGhost)) {
+            damage(paintedGhost);
+            damage(bounds);
+            paintedGhost.setBounds(bounds);
+        }
+        paintedPieceKey = pieceKey;
+
+        if (p != null && p.pendingGarbage != s.pendingGarbage) damage.add(boardPixels - 5, 0, 5, s.viewRows * blockSize);
+        if (p != null && (p.holdType != s.holdType || p.canHold != s.canHold)) damage.add(x, 50, 4 * PREVIEW_SIZE, 4 * PREVIEW_SIZE);
+        int record = Math.max(s.score, highScore);
+        if (p != null && (record != paintedRecord || p.score != s.score || p.level != s.level || p.lines != s.lines || p.combo != s.combo))
+            damage.add(x, 160, panelWidth - x, 145);
+        paintedRecord = record;
+        if (p != null && p.upcoming != s.upcoming) damage.add(x, NEXT_PREVIEW_Y + 10, panelWidth - x, 65 + 4 * SMALL_PREVIEW_SIZE);
+        GameSnapshot[] opponents = client != null ? client.getOpponents() : null;
+        if (opponents != paintedOpponents) damage.add(boardPixels + 20, 440, panelWidth - boardPixels - 20, panelHeight - 440);
+        paintedOpponents = opponents;
+    }
+
+    private void damage(Rectangle r) {
+        damage.add(r.x, r.y, r.width, r.height);
+    }
+
+    // the passive view renders once into its retained frame, clipped to every damaged rectangle scaled onto the
+    // letterboxed panel, then copies just those rectangles to the screen; the active one flips whole frames
+    private void paintDamage() {
+        if (damage.isEmpty()) return;
+        if (activeView != null) {
+            activeView.renderFrame();
+        } else if (damage.isAll()) {
+            if (isDisplayable()) renderRetained(null);
+            repaint();
+        } else if (isDisplayable()) {
+            int width = getWidth(), height = getHeight();
+            double scale = Math.min((double) width / panelWidth, (double) height / panelHeight);
+            int xOffset = (int) Math.round((width - (panelWidth * scale)) / 2.0);
+            int yOffset = (int) Math.round((height - (panelHeight * scale)) / 2.0);
+            damageClip.reset();
+            for (int i = 0; i < damage.size(); i++) {
+                int x0 = xOffset + (int) Math.floor(damage.getX(i) * scale) - 1;
+                int y0 = yOffset + (int) Math.floor(damage.getY(i) * scale) - 1;
+                int x1 = xOffset + (int) Math.ceil((damage.getX(i) + damage.getWidth(i)) * scale) + 1;
+                int y1 = yOffset + (int) Math.ceil((damage.getY(i) + damage.getHeight(i)) * scale) + 1;
+                damageRects[i].setBounds(x0, y0, x1 - x0, y1 - y0);
+                damageClip.append(damageRects[i], false);
+            }
+            renderRetained(damageClip);
+            for (int i = 0; i < damage.size(); i++) paintImmediately(damageRects[i]);
+        }
+        damage.clear();
+    }
+
+    // copies the retained frame; it is only rendered here when it was lost or the panel changed size
+    @Override
+    public void paintComponent(Graphics g) {
+        if (getWidth() <= 0 || getHeight() <= 0) return;
+        if (!validateFrame()) renderRetained(null);
+        g.drawImage(frameImage, 0, 0, null);
+    }
+
+    // renders the scene into the retained frame, only inside clip unless the frame has to be rebuilt
+    private void renderRetained(Shape clip) {
+        if (getWidth() <= 0 || getHeight() <= 0) return;
+        do {
+            Shape area = validateFrame() ? clip : null;
+            Graphics2D g = frameImage.createGraphics();
+            if (area != null) g.clip(area);
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            render(g, getWidth(), getHeight());
+            g.dispose();
+        } while (frameImage.contentsLost());
+    }
+
+    // false when the retained frame no longer holds the last render and has to be drawn whole
+    private boolean validateFrame() {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (frameImage != null && frameImage.getWidth() == getWidth() && frameImage.getHeight() == getHeight()) {
+            int status = frameImage.validate(gc);
+            if (status == VolatileImage.IMAGE_OK) return true;
+            if (status == VolatileImage.IMAGE_RESTORED) return false;
+        }
+        if (frameImage != null) frameImage.flush();
+        frameImage = gc.createCompatibleVolatileImage(getWidth(), getHeight());
+        return false;
+    }
+
+    void render(Graphics2D g2, int width, int height) {
+        PerfStats.FrameEvent event = PerfStats.beginFrame();
+        long start = System.nanoTime();
+        renderAllocations.begin();
+        renderFrame(g2, width, height);
+        renderAllocations.end();
+        long end = System.nanoTime();
+        perf.recordFrame(end - start);
+        GameSnapshot shown = layerSnapshot;
+        if (shown != null && shown != latencySnapshot && shown.inputNanos != 0) perf.recordInput(end - shown.inputNanos);
+        latencySnapshot = shown;
+        if (event != null) {
+            event.particles = particles.size();
+            event.commit();
+        }
+        if (firstFrameNanos == 0) {
+            firstFrameNanos = System.nanoTime();
+            if (STARTUP_STATS) System.out.printf("startup: first frame after %.1f ms (audio %s)%n",
+                    (firstFrameNanos - LAUNCH_NANOS) / 1e6, AudioPlayer.isSilent() ? "off" : AudioPlayer.isReady() ? "ready" : "loading");
+        }
+        if (reportAllocations) reportAllocations();
+    }
+
+    private void reportAllocations() {
+        long now = System.currentTimeMillis();
+        if (now - lastAllocationReport < 5000) return;
+        System.out.printf("render: %d frames, avg %.1f B/frame, last %d B%n",
+                renderAllocations.getSamples(), renderAllocations.getAverageBytes(), renderAllocations.getLastBytes());
+        renderAllocations.reset();
+        lastAllocationReport = now;
+    }
+
+    private void renderFrame(Graphics2D g2, int width, int height) {
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        double scale = Math.min((double) width / panelWidth, (double) height / panelHeight);
+        int xOffset = (int) Math.round((width - (panelWidth * scale)) / 2.0);
+        int yOffset = (int) Math.round((height - (panelHeight * scale)) / 2.0);
+
+        // the snapshot the damage pass diffed, so a newer one cannot land outside the damaged rectangles
+        GameSnapshot snapshot = paintedSnapshot != null ? paintedSnapshot : logic.getSnapshot();
+        VersusClient client = versus;
+        boolean inLobby = client != null && !client.isStarted() && currentState == State.PLAYING;
+        boolean inGame = !inLobby && (currentState == State.PLAYING || currentState == State.GAME_OVER);
+        if (inGame && snapshot != null) {
+            layerSnapshot = snapshot;
+            staticLayer.draw(g2, xOffset, yOffset, scale, 0);
+            stackLayer.draw(g2, xOffset, yOffset, scale, snapshot.boardVersion * Board.MAX_HEIGHT + snapshot.viewTop);
+        }
+
+        g2.translate(xOffset, yOffset);
+        g2.scale(scale, scale);
+
+        if (currentState == State.MENU) drawMenu(g2);
+        else if (currentState == State.INSTRUCTIONS) drawInstructions(g2);
+        else if (currentState == State.CREDITS) drawCredits(g2);
+        else if (inLobby) drawLobby(g2, client);
+        else if (snapshot != null) {
+            drawGame(g2, snapshot);
+            if (currentState == State.GAME_OVER) drawGameOverScreen(g2, snapshot);
+            else if (isPaused) drawPauseScreen(g2);
+        }
+        particles.draw(g2);
+        if (showPerf) drawPerf(g2);
+    }
+
+    private void drawPerf(Graphics2D g) {
+        String[] lines = perf.getLines();
+        g.setColor(PERF_SHADE);
+        g.fillRect(4, 4, 230, lines.length * 15 + 8);
+        g.setColor(Color.GREEN);
+        g.setFont(PERF_FONT);
+        for (int i = 0; i < lines.length; i++) g.drawString(lines[i], 10, 20 + i * 15);
+    }
+
+    private void drawStaticLayer(Graphics2D g) {
+        g.setColor(BACKGROUND);
+        g.fillRect(0, 0, panelWidth, panelHeight);
+        int boardPixels = boardWidth * blockSize, rowPixels = viewRows * blockSize;
+        g.setColor(BOARD_BACKGROUND);
+        g.fillRect(0, 0, boardPixels, rowPixels);
+
+        g.setColor(GRID_COLOR);
+        for(int i=0; i<=boardWidth; i++) g.drawLine(i*blockSize, 0, i*blockSize, rowPixels);
+        for(int i=0; i<=viewRows; i++) g.drawLine(0, i*blockSize, boardPixels, i*blockSize);
+
+        int x = boardPixels + 40;
+        g.setColor(Color.WHITE);
+        text.draw(g, LABEL_FONT, "GUARDADA (C):", x, 40);
+        g.drawRect(x, 50, 4 * PREVIEW_SIZE, 4 * PREVIEW_SIZE);
+        text.draw(g, LABEL_FONT, "PROXIMA:", x, NEXT_PREVIEW_Y);
+    }
+
+    private void drawStackLayer(Graphics2D g) {
+        GameSnapshot snapshot = layerSnapshot;
+        for (int i = 0; i < snapshot.viewRows; i++) {
+            int y = snapshot.viewTop + i;
+            for (long bits = snapshot.getRow(y); bits != 0; bits &= bits - 1) {
+                int j = Long.numberOfTrailingZeros(bits);
+                drawBlock(g, j*blockSize, i*blockSize, pieceColors[snapshot.get(j, y)], blockSize);
+            }
+        }
+    }
+
+    private void drawMenu(Graphics2D g) {
+        g.setColor(MENU_BACKGROUND);
+        g.fillRect(0, 0, panelWidth, panelHeight);
+        g.setColor(GRID_COLOR);
+        for(int i=0; i<panelWidth; i+=BLOCK_SIZE) g.drawLine(i, 0, i, panelHeight);
+        for(int i=0; i<panelHeight; i+=BLOCK_SIZE) g.drawLine(0, i, panelWidth, i);
+
+        g.setFont(TITLE_FONT);
+        g.setColor(rainbowColors[Math.min(rainbowColors.length - 1, (int) (rainbowHue * 100))]);
+        double floatY = Math.sin(System.currentTimeMillis() * 0.003) * 10;
+        drawCenteredString(g, "Quadra", (int)(150 + floatY));
+        g.setColor(TITLE_SHADOW);
+        drawCenteredString(g, "Quadra", (int)(155 + floatY));
+
+        g.setColor(Color.ORANGE);
+        menuRecordLabel.drawCentered(g, scores.getHighScore(), panelWidth, 220);
+
+        g.setFont(OPTION_FONT);
+        for (int i = 0; i < menuOptions.length; i++) {
+            int yPos = 300 + (i * 45);
+            if (i == menuOption) {
+                g.setColor(Color.YELLOW);
+                drawCenteredString(g, selectedMenuOptions[i], yPos);
+            } else {
+                g.setColor(Color.GRAY);
+                drawCenteredString(g, menuOptions[i], yPos);
+            }
+        }
+        g.setFont(HINT_FONT);
+        g.setColor(Color.WHITE);
+        drawCenteredString(g, "Use Setas e Espaco para selecionar", panelHeight - 40);
+    }
+
+    private void drawGame(Graphics2D g, GameSnapshot snapshot) {
+        if(currentState == State.PLAYING && !snapshot.gameOver) {
+            int[] currentPieceMasks = snapshot.masks();
+            int curX = snapshot.x, ghostY = snapshot.ghostY - snapshot.viewTop, curY = snapshot.y - snapshot.viewTop;
+            double alpha = isPaused ? 1.0 : Math.min(1.0, (System.nanoTime() - snapshot.tickNanos) / (double) logic.getTickNanos());
+            int pieceX = (int) Math.round(snapshot.interpolatedX(alpha) * blockSize);
+            int pieceY = (int) Math.round((snapshot.interpolatedY(alpha) - snapshot.viewTop) * blockSize);
+            g.setColor(GHOST_COLOR);
+            for(int i=0; i<4; i++) for(int j=0; j<4; j++) if((currentPieceMasks[i] >> j & 1) != 0 && inView(ghostY+i, snapshot))
+                g.fillRect((curX+j)*blockSize, (ghostY+i)*blockSize, blockSize, blockSize);
+            for (int i = 0; i < 4; i++) for (int j = 0; j < 4; j++) if ((currentPieceMasks[i] >> j & 1) != 0 && inView(curY+i, snapshot))
+                drawBlock(g, pieceX + j*blockSize, pieceY + i*blockSize, pieceColors[snapshot.currentType], blockSize);
+        }
+        if (snapshot.pendingGarbage > 0) {
+            int h = Math.min(snapshot.viewRows, snapshot.pendingGarbage) * blockSize;
+            g.setColor(Color.RED);
+            g.fillRect(boardWidth * blockSize - 5, snapshot.viewRows * blockSize - h, 5, h);
+        }
+        drawSidePanel(g, snapshot);
+        VersusClient client = versus;
+        if (client != null) drawOpponents(g, paintedOpponents != null ? paintedOpponents : client.getOpponents(), boardWidth * blockSize + 20, 460);
+    }
+
+    private static boolean inView(int row, GameSnapshot snapshot) {
+        return row >= 0 && row < snapshot.viewRows;
+    }
+
+    private void drawSidePanel(Graphics2D g, GameSnapshot snapshot) {
+        int x = boardWidth * blockSize + 40;
+        int previewScale = PREVIEW_SIZE;
+
+        int holdPieceType = snapshot.holdType;
+        if (holdPieceType != 0) {
+            int[] holdMasks = PieceTable.masks(holdPieceType, 0);
+            for(int i=0; i<4; i++) for(int j=0; j<4; j++) if((holdMasks[i] >> j & 1) != 0)
+                drawBlock(g, x + (j*previewScale), 50 + (i*previewScale), snapshot.canHold ? pieceColors[holdPieceType] : Color.GRAY, previewScale);
+        }
+
+        int score = snapshot.score;
+        int comboCount = snapshot.combo;
+        int yStats = 180;
+        g.setColor(Color.YELLOW);
+        recordLabel.draw(g, Math.max(score, highScore), x, yStats);
+        g.setColor(Color.WHITE);
+        scoreLabel.draw(g, score, x, yStats + 25);
+        levelLabel.draw(g, snapshot.level, x, yStats + 50);
+        linesLabel.draw(g, snapshot.lines, x, yStats + 75);
+        if (comboCount > 0) {
+            g.setColor(Color.CYAN);
+            comboLabel.draw(g, comboCount, x, yStats + 110);
+        }
+        int yNext = NEXT_PREVIEW_Y;
+        int nextPieceType = snapshot.nextType;
+        int[] nextMasks = PieceTable.masks(nextPieceType, 0);
+        for(int i=0; i<4; i++) for(int j=0; j<4; j++) if((nextMasks[i] >> j & 1) != 0)
+            drawBlock(g, x + (j*previewScale), yNext + 10 + (i*previewScale), pieceColors[nextPieceType], previewScale);
+        for (int n = 1; n < GameEngine.PREVIEW_COUNT; n++) {
+            int type = snapshot.getNextType(n);
+            int[] masks = PieceTable.masks(type, 0);
+            int px = x + (n - 1) * (4 * SMALL_PREVIEW_SIZE + 8);
+            for (int i = 0; i < 4; i++) for (int j = 0; j < 4; j++) if ((masks[i] >> j & 1) != 0)
+                drawBlock(g, px + j * SMALL_PREVIEW_SIZE, yNext + 75 + i * SMALL_PREVIEW_SIZE, pieceColors[type], SMALL_PREVIEW_SIZE);
+        }
+    }
+
+    private void drawGameOverScreen(Graphics2D g, GameSnapshot snapshot) {
+        g.setColor(GAME_OVER_SHADE);
+        g.fillRect(0, 0, panelWidth, panelHeight);
+        VersusClient client = versus;
+        boolean won = client != null && client.isWinner();
+        g.setColor(won ? Color.GREEN : Color.RED);
+        g.setFont(HEADING_FONT);
+        drawCenteredString(g, won ? "VITORIA!" : "GAME OVER", 200);
+        g.setColor(Color.WHITE);
+        g.setFont(SCORE_FONT);
+        int score = snapshot.score;
+        finalScoreLabel.drawCentered(g, score, panelWidth, 250);
+        if (client != null) {
+            if (client.getPlace() > 0) {
+                g.setColor(Color.LIGHT_GRAY);
+                placeLabel.drawCentered(g, client.getPlace(), panelWidth, 285);
+            }
+        } else if (newRecord && !spectating) {
+            g.setColor(Color.YELLOW);
+            drawCenteredString(g, "NOVO RECORDE!", 280);
+        } else if (gameOverRank > 0 && !spectating) {
+            g.setColor(Color.LIGHT_GRAY);
+            rankLabel.drawCentered(g, gameOverRank, panelWidth, 285);
+        }
+        g.setFont(OPTION_FONT);
+        for (int i = 0; i < gameOverOptions.length; i++) {
+            if (i == gameOverOption) {
+                g.setColor(Color.GREEN);
+                drawCenteredString(g, selectedGameOverOptions[i], 350 + (i * 50));
+            } else {
+                g.setColor(Color.GRAY);
+                drawCenteredString(g, gameOverOptions[i], 350 + (i * 50));
+            }
+        }
+    }
+
+    private void drawPauseScreen(Graphics2D g) {
+        g.setColor(PAUSE_SHADE);
+        g.fillRect(0, 0, panelWidth, panelHeight);
+        g.setColor(Color.YELLOW);
+        g.setFont(HEADING_FONT);
+        drawCenteredString(g, "PAUSADO", panelHeight / 2);
+        g.setColor(Color.WHITE);
+        g.setFont(SMALL_FONT);
+        drawCenteredString(g, "Pressione 'P' para Retomar", panelHeight / 2 + 40);
+    }
+
+    private void drawInstructions(Graphics2D g) {
+        g.setColor(MENU_BACKGROUND);
+        g.fillRect(0, 0, panelWidth, panelHeight);
+        g.setColor(Color.CYAN);
+        g.setFont(SCREEN_TITLE_FONT);
+        drawCenteredString(g, "TUTORIAL", 100);
+        g.setColor(Color.WHITE);
+        g.setFont(TEXT_FONT);
+        int y = 200;
+        drawCenteredString(g, "SETAS: Mover e Girar", y); y+=30;
+        drawCenteredString(g, "ESPACO: Queda Instantanea", y); y+=30;
+        drawCenteredString(g, "TECLA 'C': Guardar Peca (Hold)", y); y+=30;
+        drawCenteredString(g, "P: Pausar o jogo", y); y+=30;
+        g.setColor(Color.YELLOW);
+        drawCenteredString(g, "Pressione ESPACO para voltar", panelHeight - 100);
+    }
+
+    private void drawLobby(Graphics2D g, VersusClient client) {
+        g.setColor(MENU_BACKGROUND);
+        g.fillRect(0, 0, panelWidth, panelHeight);
+        g.setColor(Color.CYAN);
+        g.setFont(SCREEN_TITLE_FONT);
+        drawCenteredString(g, "VERSUS", 200);
+        g.setColor(Color.WHITE);
+        g.setFont(TEXT_FONT);
+        drawCenteredString(g, "Aguardando jogadores...", 260);
+        if (client.getNeeded() > 0) {
+            g.setColor(Color.LIGHT_GRAY);
+            lobbyLabel.drawCentered(g, client.getWaiting(), panelWidth, 295);
+        }
+        g.setColor(Color.GRAY);
+        g.setFont(HINT_FONT);
+        drawCenteredString(g, "ESC para voltar ao menu", panelHeight - 50);
+    }
+
+    private void drawOpponents(Graphics2D g, GameSnapshot[] opponents, int x, int y) {
+        int cell = 3;
+        g.setColor(Color.WHITE);
+        text.draw(g, LABEL_FONT, "OPONENTES:", x, y);
+        for (int n = 0; n < opponents.length; n++) {
+            GameSnapshot o = opponents[n];
+            int ox = x + n * (o.width * cell + 4), oy = y + 10;
+            g.setColor(BOARD_BACKGROUND);
+            g.fillRect(ox, oy, o.width * cell, o.height * cell);
+            for (int i = 0; i < o.height; i++) {
+                if (o.getRow(i) == 0) continue;
+                for (int j = 0; j < o.width; j++) if (o.get(j, i) != 0) {
+                    g.setColor(pieceColors[o.get(j, i)]);
+                    g.fillRect(ox + j * cell, oy + i * cell, cell, cell);
+                }
+            }
+            if (o.gameOver) {
+                g.setColor(GAME_OVER_SHADE);
+                g.fillRect(ox, oy, o.width * cell, o.height * cell);
+            }
+        }
+    }
+
+    private void drawCredits(Graphics2D g) {
+        g.setColor(MENU_BACKGROUND);
+        g.fillRect(0, 0, panelWidth, panelHeight);
+        g.setColor(Color.MAGENTA);
+        g.setFont(SCREEN_TITLE_FONT);
+        drawCenteredString(g, "CREDITOS", 80);
+        g.setColor(Color.WHITE);
+        g.setFont(TEXT_FONT);
+        int y = 180;
+        g.setColor(Color.ORANGE);
+        drawCenteredString(g, "Criador Original do Tetris:", y);
+        g.setColor(Color.WHITE);
+        drawCenteredString(g, "Alexey Pajitnov (1984)", y + 25);
+        y += 80;
+        g.setColor(Color.CYAN);
+        drawCenteredString(g, "Desenvolvimento Java & Swing:", y);
+        g.setColor(Color.WHITE);
+        drawCenteredString(g, "joaorizzo0112 (Github)", y + 25);
+
+        drawCenteredString(g, "Pressione ESPACO para voltar", panelHeight - 50);
+    }
+
+    private void drawCenteredString(Graphics2D g, String text, int y) {
+        this.text.drawCentered(g, g.getFont(), text, panelWidth, y);
+    }
+
+    private void drawBlock(Graphics2D g, int x, int y, Color c, int size) {
+        g.setColor(c);
+        g.fillRect(x+1, y+1, size-2, size-2);
+        g.setColor(BLOCK_HIGHLIGHT);
+        g.fillRect(x+1, y+1, size-2, size/3);
+    }
+
+    private class TAdapter extends KeyAdapter {
+        private final long[] releaseWhen = new long[8];
+
+        @Override
+        public void keyPressed(KeyEvent e) {
+            int key = e.getKeyCode();
+            lastInputMillis = System.currentTimeMillis();
+            if (!gameLoop.isRunning()) gameLoop.start();
+            if (key == KeyEvent.VK_F3) { showPerf = !showPerf; redrawAll(); return; }
+            if (currentState == State.MENU) {
+                if (key == KeyEvent.VK_UP) { menuOption--; if (menuOption < 0) menuOption = menuOptions.length - 1; }
+                else if (key == KeyEvent.VK_DOWN) { menuOption++; if (menuOption >= menuOptions.length) menuOption = 0; }
+                else if (key == KeyEvent.VK_SPACE || key == KeyEvent.VK_ENTER) {
+                    AudioPlayer.playMove();
+                    if (menuOption == 0) startGame();
+                    else if (menuOption == 1) startDemo();
+                    else if (menuOption == 2) currentState = State.INSTRUCTIONS;
+                    else if (menuOption == 3) currentState = State.CREDITS;
+                    else if (menuOption == 4) System.exit(0);
+                }
+            } else if (currentState == State.GAME_OVER) {
+                if (key == KeyEvent.VK_UP || key == KeyEvent.VK_DOWN) {
+                    gameOverOption = (gameOverOption == 0) ? 1 : 0;
+                    AudioPlayer.playMove();
+                } else if (key == KeyEvent.VK_SPACE || key == KeyEvent.VK_ENTER) {
+                    if (gameOverOption == 1) { closeVersus(); currentState = State.MENU; menuOption = 0; }
+                    else if (versus != null) startVersus(versusHost, versusPort);
+                    else startGame();
+                }
+            } else if (currentState == State.INSTRUCTIONS || currentState == State.CREDITS) {
+                if (key == KeyEvent.VK_SPACE || key == KeyEvent.VK_ESCAPE) currentState = State.MENU;
+            } else if (currentState == State.PLAYING) {
+                if (key == KeyEvent.VK_P && versus == null) { setPaused(!isPaused); return; }
+                if ((spectating || versus != null) && key == KeyEvent.VK_ESCAPE) {
+                    closeVersus();
+                    logic.setPaused(true);
+                    isPaused = false;
+                    currentState = State.MENU;
+                    return;
+                }
+                int input = inputFor(key);
+                if (input != GameEngine.INPUT_NONE) {
+                    if (isPaused || spectating) return;
+                    if (e.getWhen() == releaseWhen[input]) logic.getKeys().hold(input);
+                    else logic.getKeys().press(input, System.nanoTime());
+                    return;
+                }
+                if (isPaused) return;
+            }
+            redrawAll();
+        }
+
+        @Override
+        public void keyReleased(KeyEvent e) {
+            int input = inputFor(e.getKeyCode());
+            if (input == GameEngine.INPUT_NONE) return;
+            releaseWhen[input] = e.getWhen();
+            logic.getKeys().release(input);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (Arrays.asList(args).contains("--silent")) AudioPlayer.setSilent(true);
+        JFrame frame = new JFrame("Quadra");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        Quadra quadra = new Quadra();
+        int boardArg = Arrays.asList(args).indexOf("--board");
+        if (boardArg >= 0 && boardArg + 1 < args.length) {
+            String[] size = args[boardArg + 1].split("x");
+            quadra.setBoardSize(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+        }
+        int randomizerArg = Arrays.asList(args).indexOf("--randomizer");
+        if (randomizerArg >= 0 && randomizerArg + 1 < args.length) quadra.setRandomizer(Randomizer.kindOf(args[randomizerArg + 1]));
+        ActiveView activeView = null;
+        if (Arrays.asList(args).contains("--active")) {
+            activeView = new ActiveView(quadra);
+            frame.add(activeView);
+        } else {
+            frame.add(quadra);
+        }
+        frame.pack();
+        
+        frame.setMinimumSize(new Dimension(400, 400));
+        frame.setLocationRelativeTo(null);
+        
+        frame.setVisible(true);
+        if (activeView != null) {
+            activeView.createBufferStrategy(2);
+            activeView.requestFocusInWindow();
+            quadra.setActiveView(activeView);
+        }
+        int replayArg = Arrays.asList(args).indexOf("--replay");
+        if (replayArg >= 0) {
+            int speedArg = Arrays.asList(args).indexOf("--speed");
+            int speed = speedArg >= 0 && speedArg + 1 < args.length ? Integer.parseInt(args[speedArg + 1]) : 1;
+            String file = replayArg + 1 < args.length ? args[replayArg + 1] : REPLAY_FILE;
+            try {
+                quadra.startReplay(Replay.load(new File(file)), speed);
+            } catch (IOException e) {
+                System.err.println("replay: " + e.getMessage());
+            }
+        }
+        int versusArg = Arrays.asList(args).indexOf("--versus");
+        if (versusArg >= 0) {
+            String address = versusArg + 1 < args.length && !args[versusArg + 1].startsWith("--") ? args[versusArg + 1] : "localhost";
+            int colon = address.lastIndexOf(':');
+            String host = colon >= 0 ? address.substring(0, colon) : address;
+            int port = colon >= 0 ? Integer.parseInt(address.substring(colon + 1)) : VersusProtocol.DEFAULT_PORT;
+            quadra.startVersus(host, port);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,220 @@
+package quadra;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Draws piece types 1..7. next() is O(1) amortized and allocation-free; reset(seed) makes the stream reproducible.
+// copyFrom/write/read carry the whole generator state, the SplitMix64 long plus any bag or history, so GameState
+// can capture and restore it.
+public abstract class Randomizer {
+
+    public static final int BAG_7 = 0;
+    public static final int BAG_14 = 1;
+    public static final int MEMORYLESS = 2;
+    public static final int HISTORY = 3;
+    public static final int KINDS = 4;
+    private static final String[] NAMES = {"bag7", "bag14", "memoryless", "tgm"};
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final int kind;
+    long state;
+
+    Randomizer(int kind) {
+        this.kind = kind;
+    }
+
+    public static Randomizer create(int kind) {
+        switch (kind) {
+            case BAG_7: return new Bag(BAG_7, 1);
+            case BAG_14: return new Bag(BAG_14, 2);
+            case MEMORYLESS: return new Memoryless();
+            case HISTORY: return new History();
+            default: throw new IllegalArgumentException("unknown randomizer: " + kind);
+        }
+    }
+
+    public static int kindOf(String name) {
+        for (int i = 0; i < NAMES.length; i++) if (NAMES[i].equalsIgnoreCase(name)) return i;
+        throw new IllegalArgumentException("unknown randomizer: " + name + " (" + String.join(", ", NAMES) + ")");
+    }
+
+    public static String nameOf(int kind) { return NAMES[kind]; }
+
+    public int getKind() { return kind; }
+
+    public void reset(long seed) {
+        state = seed;
+    }
+
+    public abstract int next();
+
+    // SplitMix64, the same stream as new SplittableRandom(seed).nextInt(bound)
+    int nextInt(int bound) {
+        int r = mix32(state += GOLDEN_GAMMA);
+        int m = bound - 1;
+        if ((bound & m) == 0) return r & m;
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(state += GOLDEN_GAMMA) >>> 1) ;
+        return r;
+    }
+
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+
+    void copyFrom(Randomizer other) {
+        state = other.state;
+    }
+
+    void write(OutputStream out) throws IOException {
+        for (int shift = 56; shift >= 0; shift -= 8) out.write((int) (state >>> shift));
+    }
+
+    void read(InputStream in) throws IOException {
+        state = 0;
+        for (int i = 0; i < 8; i++) state = state << 8 | readByte(in, 0, 0xFF);
+    }
+
+    static int readByte(InputStream in, int min, int max) throws IOException {
+        int b = in.read();
+        if (b < min || b > max) throw new IOException(b < 0 ? "truncated state" : "corrupt state: " + b);
+        return b;
+    }
+
+    private static class Bag extends Randomizer {
+        private final int[] pieces;
+        private int index;
+
+        Bag(int kind, int copies) {
+            super(kind);
+            pieces = new int[PieceTable.PIECE_TYPES * copies];
+        }
+
+        @Override
+        public void reset(long seed) {
+            super.reset(seed);
+            index = pieces.length;
+        }
+
+        @Override
+        public int next() {
+            if (index == pieces.length) refill();
+            return pieces[index++];
+        }
+
+        private void refill() {
+            for (int i = 0; i < pieces.length; i++) pieces[i] = 1 + i % PieceTable.PIECE_TYPES;
+            for (int i = pieces.length; i > 1; i--) {
+                int j = nextInt(i);
+                int swap = pieces[i - 1];
+                pieces[i - 1] = pieces[j];
+                pieces[j] = swap;
+            }
+            index = 0;
+        }
+
+        @Override
+        void copyFrom(Randomizer other) {
+            super.copyFrom(other);
+            Bag bag = (Bag) other;
+            System.arraycopy(bag.pieces, 0, pieces, 0, pieces.length);
+            index = bag.index;
+        }
+
+        @Override
+        void write(OutputStream out) throws IOException {
+            super.write(out);
+            out.write(index);
+            for (int i = index; i < pieces.length; i++) out.write(pieces[i]);
+        }
+
+        @Override
+        void read(InputStream in) throws IOException {
+            super.read(in);
+            index = readByte(in, 0, pieces.length);
+            for (int i = index; i < pieces.length; i++) pieces[i] = readByte(in, 1, PieceTable.PIECE_TYPES);
+        }
+    }
+
+    private static final class Memoryless extends Randomizer {
+        Memoryless() {
+            super(MEMORYLESS);
+        }
+
+        @Override
+        public int next() {
+            return 1 + nextInt(PieceTable.PIECE_TYPES);
+        }
+    }
+
+    // TGM style: remember the last 4 pieces and reroll up to 6 times to avoid them; never open with S, Z or O
+    private static final class History extends Randomizer {
+        private static final int ROLLS = 6;
+        private static final int S = 3, Z = 2;
+        private static final int[] OPENERS = {1, 4, 6, 7};
+        private final int[] history = new int[4];
+        private int head;
+        private boolean first;
+
+        History() {
+            super(HISTORY);
+        }
+
+        @Override
+        public void reset(long seed) {
+            super.reset(seed);
+            history[0] = Z;
+            history[1] = S;
+            history[2] = S;
+            history[3] = Z;
+            head = 0;
+            first = true;
+        }
+
+        @Override
+        public int next() {
+            int piece;
+            if (first) {
+                first = false;
+                piece = OPENERS[nextInt(OPENERS.length)];
+            } else {
+                piece = 1 + nextInt(PieceTable.PIECE_TYPES);
+                for (int roll = 1; roll < ROLLS && seen(piece); roll++) piece = 1 + nextInt(PieceTable.PIECE_TYPES);
+            }
+            history[head] = piece;
+            head = (head + 1) & 3;
+            return piece;
+        }
+
+        @Override
+        void copyFrom(Randomizer other) {
+            super.copyFrom(other);
+            History h = (History) other;
+            System.arraycopy(h.history, 0, history, 0, history.length);
+            head = h.head;
+            first = h.first;
+        }
+
+        @Override
+        void write(OutputStream out) throws IOException {
+            super.write(out);
+            out.write(head | (first ? 4 : 0));
+            for (int piece : history) out.write(piece);
+        }
+
+        @Override
+        void read(InputStream in) throws IOException {
+            super.read(in);
+            int flags = readByte(in, 0, 7);
+            head = flags & 3;
+            first = (flags & 4) != 0;
+            for (int i = 0; i < history.length; i++) history[i] = readByte(in, 1, PieceTable.PIECE_TYPES);
+        }
+
+        private boolean seen(int piece) {
+            return history[0] == piece || history[1] == piece || history[2] == piece || history[3] == piece;
+        }
+    }
+}
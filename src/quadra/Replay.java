@@ -0,0 +1,246 @@
+package quadra;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+public class Replay {
+
+    private static final byte[] MAGIC = {'Q', 'R', 'P', 'L'};
+    private static final int VERSION = 4;
+    private static final int INPUT_BITS = 3;
+    private static final int END = 0;
+    public static final int GARBAGE = 7;
+
+    private final int width;
+    private final int height;
+    private final long seed;
+    private final int randomizer;
+    // games resumed from a saved state replay from that state instead of from the seed
+    private final GameState start;
+
+    private long[] ticks = new long[256];
+    private byte[] inputs = new byte[256];
+    private int[] garbage = new int[256];
+    private int count;
+
+    private boolean finished;
+    private long endTick;
+    private int finalScore;
+    private int finalLines;
+
+    public Replay(int width, int height, long seed) {
+        this(width, height, seed, Randomizer.BAG_7);
+    }
+
+    public Replay(int width, int height, long seed, int randomizer) {
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        this.randomizer = randomizer;
+        this.start = null;
+    }
+
+    public Replay(GameState start) {
+        this.width = start.width;
+        this.height = start.height;
+        this.seed = start.seed;
+        this.randomizer = start.randomizer.getKind();
+        this.start = start;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public long getSeed() { return seed; }
+    public int getRandomizer() { return randomizer; }
+    public GameState getStart() { return start; }
+    public int getEventCount() { return count; }
+    public long getTick(int index) { return ticks[index]; }
+    public int getInput(int index) { return inputs[index]; }
+    public int getGarbageLines(int index) { return garbage[index] >>> 8; }
+    public int getGarbageHole(int index) { return garbage[index] & 0xFF; }
+    public boolean isFinished() { return finished; }
+    public long getEndTick() { return endTick; }
+    public int getFinalScore() { return finalScore; }
+    public int getFinalLines() { return finalLines; }
+
+    public void record(long tick, int input) {
+        if (input <= GameEngine.INPUT_NONE || input >= GARBAGE) throw new IllegalArgumentException("input: " + input);
+        add(tick, input, 0);
+    }
+
+    public void recordGarbage(long tick, int lines, int hole) {
+        if (lines <= 0 || hole < 0 || hole > 0xFF) throw new IllegalArgumentException("garbage: " + lines + "/" + hole);
+        add(tick, GARBAGE, lines << 8 | hole);
+    }
+
+    private void add(long tick, int input, int argument) {
+        if (finished) throw new IllegalStateException("replay already finished");
+        if (count > 0 && tick < ticks[count - 1]) throw new IllegalArgumentException("tick out of order: " + tick);
+        if (count == ticks.length) {
+            ticks = Arrays.copyOf(ticks, count * 2);
+            inputs = Arrays.copyOf(inputs, count * 2);
+            garbage = Arrays.copyOf(garbage, count * 2);
+        }
+        ticks[count] = tick;
+        inputs[count] = (byte) input;
+        garbage[count] = argument;
+        count++;
+    }
+
+    public int apply(int index, GameEngine game) {
+        if (inputs[index] != GARBAGE) return game.input(inputs[index]);
+        game.queueGarbage(getGarbageLines(index), getGarbageHole(index));
+        return 0;
+    }
+
+    public void finish(long tick, int score, int lines) {
+        finished = true;
+        endTick = tick;
+        finalScore = score;
+        finalLines = lines;
+    }
+
+    public GameEngine simulate() {
+        GameEngine game = new GameEngine(width, height);
+        game.setRandomizer(randomizer);
+        if (start != null) game.restore(start);
+        else game.start(seed);
+        long lastTick = finished ? endTick : count == 0 ? game.getTickCount() : ticks[count - 1] + 1;
+        int next = 0;
+        while (!game.isGameOver() && game.getTickCount() < lastTick) {
+            while (next < count && ticks[next] == game.getTickCount()) apply(next++, game);
+            game.tick();
+        }
+        while (next < count && ticks[next] == game.getTickCount()) apply(next++, game);
+        return game;
+    }
+
+    public boolean verify() {
+        GameEngine game = simulate();
+        return finished && game.getTickCount() == endTick && game.getScore() == finalScore
+                && game.getLinesCleared() == finalLines;
+    }
+
+    public void write(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeVarint(out, width);
+        writeVarint(out, height);
+        out.write(randomizer);
+        for (int shift = 56; shift >= 0; shift -= 8) out.write((int) (seed >>> shift));
+        out.write(start != null ? 1 : 0);
+        if (start != null) start.write(out);
+        long previous = start != null ? start.tickCount : 0;
+        for (int i = 0; i < count; i++) {
+            writeVarint(out, (ticks[i] - previous) << INPUT_BITS | inputs[i]);
+            if (inputs[i] == GARBAGE) writeVarint(out, garbage[i]);
+            previous = ticks[i];
+        }
+        if (finished) {
+            writeVarint(out, (endTick - previous) << INPUT_BITS | END);
+            writeVarint(out, finalScore);
+            writeVarint(out, finalLines);
+        }
+    }
+
+    public static Replay read(InputStream in) throws IOException {
+        for (byte b : MAGIC) if (in.read() != b) throw new IOException("not a replay file");
+        int version = in.read();
+        if (version != VERSION) throw new IOException("unsupported replay version: " + version);
+        int width = (int) readVarint(in);
+        int height = (int) readVarint(in);
+        int randomizer = readByte(in);
+        if (randomizer >= Randomizer.KINDS) throw new IOException("unknown randomizer: " + randomizer);
+        long seed = 0;
+        for (int i = 0; i < 8; i++) seed = seed << 8 | readByte(in);
+        GameState start = readByte(in) != 0 ? GameState.read(in) : null;
+        if (start != null && (start.width != width || start.height != height || start.randomizer.getKind() != randomizer))
+            throw new IOException("replay header does not match its start state");
+        Replay replay = start != null ? new Replay(start) : new Replay(width, height, seed, randomizer);
+        long tick = start != null ? start.tickCount : 0;
+        while (true) {
+            int first = in.read();
+            if (first < 0) return replay;
+            long value = readVarint(in, first);
+            tick += value >>> INPUT_BITS;
+            int input = (int) (value & (1 << INPUT_BITS) - 1);
+            if (input == END) {
+                replay.finish(tick, (int) readVarint(in), (int) readVarint(in));
+                return replay;
+            }
+            if (input == GARBAGE) {
+                int argument = (int) readVarint(in);
+                replay.recordGarbage(tick, argument >>> 8, argument & 0xFF);
+            } else {
+                replay.record(tick, input);
+            }
+        }
+    }
+
+    public void save(File file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            write(out);
+        }
+    }
+
+    public static Replay load(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return read(in);
+        }
+    }
+
+    static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarint(InputStream in) throws IOException {
+        return readVarint(in, readByte(in));
+    }
+
+    private static long readVarint(InputStream in, int first) throws IOException {
+        long value = first & 0x7F;
+        int b = first;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            if (shift > 63) throw new IOException("malformed varint");
+            b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+        }
+        return value;
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) throw new EOFException("truncated replay");
+        return b;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("usage: Replay <file.qrp> [runs]");
+            return;
+        }
+        Replay replay = load(new File(args[0]));
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        GameEngine game = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) game = replay.simulate();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double realSeconds = game.getTickCount() * GameEngine.TICK_MILLIS / 1000.0;
+        System.out.printf("seed=%d randomizer=%s events=%d ticks=%d score=%d lines=%d level=%d%n", replay.getSeed(),
+                Randomizer.nameOf(replay.getRandomizer()), replay.getEventCount(), game.getTickCount(), game.getScore(), game.getLinesCleared(), game.getLevel());
+        System.out.printf("%.0fx real time (%.3f ms per run)%n", realSeconds * runs / seconds, seconds * 1000 / runs);
+        if (replay.isFinished()) System.out.println(replay.verify() ? "verified: OK" : "verified: MISMATCH");
+    }
+}
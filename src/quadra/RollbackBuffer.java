@@ -0,0 +1,54 @@
+package quadra;
+
+// The last N engine states for rollback: netcode resimulates from the newest state before a late input,
+// AI lookahead tries a line and rewinds. push and rewind do not allocate once every slot has been filled.
+public final class RollbackBuffer {
+
+    private final GameState[] states;
+    private int head;
+    private int size;
+
+    public RollbackBuffer(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity: " + capacity);
+        states = new GameState[capacity];
+        for (int i = 0; i < capacity; i++) states[i] = new GameState();
+    }
+
+    public int capacity() { return states.length; }
+    public int size() { return size; }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    public void push(GameEngine game) {
+        game.save(states[head]);
+        head = head == states.length - 1 ? 0 : head + 1;
+        if (size < states.length) size++;
+    }
+
+    // 0 is the newest state
+    public GameState get(int back) {
+        if (back < 0 || back >= size) throw new IndexOutOfBoundsException("state " + back + " of " + size);
+        return states[slot(back)];
+    }
+
+    // restores the newest state at or before tick and forgets the ones after it; false if the ring does not reach back that far
+    public boolean rewind(GameEngine game, long tick) {
+        for (int back = 0; back < size; back++) {
+            int slot = slot(back);
+            if (states[slot].tickCount > tick) continue;
+            game.restore(states[slot]);
+            head = slot == states.length - 1 ? 0 : slot + 1;
+            size -= back;
+            return true;
+        }
+        return false;
+    }
+
+    private int slot(int back) {
+        int slot = head - 1 - back;
+        return slot < 0 ? slot + states.length : slot;
+    }
+}
@@ -0,0 +1,329 @@
+package quadra;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ScoreStore {
+
+    public static final String HIGH_SCORE_FILE = "highscore.txt";
+    public static final String STATS_FILE = "stats.log";
+    public static final String LEADERBOARD_FILE = "leaderboard.dat";
+    public static final String LEADERBOARD_INDEX_FILE = "leaderboard.idx";
+    public static final String RESUME_FILE = "resume.qst";
+    private static final int COMPACT_EVERY = 256;
+    private static final int KEEP_RECENT = 100;
+
+    public static final class Record {
+        public final long timestamp;
+        public final int score;
+        public final int lines;
+        public final int level;
+        public final int maxCombo;
+        public final long durationMillis;
+
+        public Record(long timestamp, int score, int lines, int level, int maxCombo, long durationMillis) {
+            this.timestamp = timestamp;
+            this.score = score;
+            this.lines = lines;
+            this.level = level;
+            this.maxCombo = maxCombo;
+            this.durationMillis = durationMillis;
+        }
+
+        String format() {
+            return timestamp + " " + score + " " + lines + " " + level + " " + maxCombo + " " + durationMillis;
+        }
+
+        static Record parse(String line) {
+            String[] f = line.trim().split(" ");
+            if (f.length != 6) return null;
+            try {
+                return new Record(Long.parseLong(f[0]), Integer.parseInt(f[1]), Integer.parseInt(f[2]),
+                        Integer.parseInt(f[3]), Integer.parseInt(f[4]), Long.parseLong(f[5]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    public static final class Totals {
+        long games;
+        long score;
+        long lines;
+        long millis;
+
+        void add(Record r) {
+            games++;
+            score += r.score;
+            lines += r.lines;
+            millis += r.durationMillis;
+        }
+
+        String format() {
+            return "# " + games + " " + score + " " + lines + " " + millis;
+        }
+
+        boolean parse(String line) {
+            String[] f = line.substring(1).trim().split(" ");
+            if (f.length != 4) return false;
+            try {
+                games += Long.parseLong(f[0]);
+                score += Long.parseLong(f[1]);
+                lines += Long.parseLong(f[2]);
+                millis += Long.parseLong(f[3]);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        public long getGames() { return games; }
+        public long getTotalScore() { return score; }
+        public long getTotalLines() { return lines; }
+        public long getTotalMillis() { return millis; }
+    }
+
+    private final File dir;
+    private final ExecutorService writer;
+
+    private int savedHighScore;
+    private final Totals compacted = new Totals();
+    private final Deque<Record> recent = new ArrayDeque<>();
+    // only touched on the writer thread
+    private int appendedSinceCompaction;
+    private Leaderboard leaderboard;
+
+    public ScoreStore(File dir) {
+        this.dir = dir;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "quadra-io");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public synchronized int load() {
+        savedHighScore = 0;
+        File high = new File(dir, HIGH_SCORE_FILE);
+        if (high.exists()) {
+            try (BufferedReader reader = reader(high)) {
+                String line = reader.readLine();
+                if (line != null && !line.trim().isEmpty()) savedHighScore = Integer.parseInt(line.trim());
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("highscore: " + e.getMessage());
+            }
+        }
+
+        try {
+            if (leaderboard == null)
+                leaderboard = new Leaderboard(new File(dir, LEADERBOARD_FILE), new File(dir, LEADERBOARD_INDEX_FILE));
+            savedHighScore = Math.max(savedHighScore, leaderboard.getBestScore());
+        } catch (IOException e) {
+            System.err.println("leaderboard: " + e.getMessage());
+        }
+
+        // an empty leaderboard gets every game still listed in stats.log; games already folded into the totals line are gone
+        List<Record> history = leaderboard != null && leaderboard.size() == 0 ? new ArrayList<>() : null;
+        File stats = new File(dir, STATS_FILE);
+        int malformed = 0;
+        int appended = 0;
+        if (stats.exists()) {
+            try (BufferedReader reader = reader(stats)) {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    Record r = line.startsWith("#") ? null : Record.parse(line);
+                    if (r != null) {
+                        keep(r);
+                        if (history != null) history.add(r);
+                        appended++;
+                        if (r.score > savedHighScore) savedHighScore = r.score;
+                    } else if (!line.startsWith("#") || !compacted.parse(line)) {
+                        malformed++;
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("stats: " + e.getMessage());
+            }
+        }
+        int count = appended;
+        writer.execute(() -> appendedSinceCompaction = count);
+        if (history != null && !history.isEmpty()) writer.execute(() -> {
+            for (Record r : history) addToLeaderboard(r);
+        });
+        if (malformed > 0) writer.execute(() -> {
+            try {
+                compact();
+            } catch (IOException e) {
+                System.err.println("stats: " + e.getMessage());
+            }
+        });
+        return savedHighScore;
+    }
+
+    public synchronized int getHighScore() { return savedHighScore; }
+
+    public synchronized boolean isNewRecord(int score) {
+        return score > 0 && score > savedHighScore;
+    }
+
+    public synchronized int rankOf(int score) {
+        return leaderboard == null ? 1 : leaderboard.rankOf(score);
+    }
+
+    public synchronized Leaderboard getLeaderboard() { return leaderboard; }
+
+    public synchronized Totals getTotals() {
+        Totals t = new Totals();
+        t.games = compacted.games;
+        t.score = compacted.score;
+        t.lines = compacted.lines;
+        t.millis = compacted.millis;
+        for (Record r : recent) t.add(r);
+        return t;
+    }
+
+    public void recordGame(Record record) {
+        boolean newHigh;
+        synchronized (this) {
+            newHigh = record.score > savedHighScore;
+            if (newHigh) savedHighScore = record.score;
+        }
+        int score = record.score;
+        writer.execute(() -> {
+            try {
+                append(record);
+                addToLeaderboard(record);
+                if (newHigh) writeAtomically(HIGH_SCORE_FILE, String.valueOf(score).getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                System.err.println("stats: " + e.getMessage());
+            }
+        });
+    }
+
+    public void saveReplay(String name, Replay replay) {
+        writer.execute(() -> {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                replay.write(out);
+                writeAtomically(name, out.toByteArray());
+            } catch (IOException e) {
+                System.err.println("replay: " + e.getMessage());
+            }
+        });
+    }
+
+    public GameState loadState() {
+        File file = new File(dir, RESUME_FILE);
+        if (!file.exists()) return null;
+        try {
+            return GameState.load(file);
+        } catch (IOException e) {
+            System.err.println("resume: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // serializes on the caller's thread so state can be reused right away; null deletes the file
+    public void saveState(GameState state) {
+        byte[] data = null;
+        if (state != null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            try {
+                state.write(out);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            data = out.toByteArray();
+        }
+        byte[] bytes = data;
+        writer.execute(() -> {
+            try {
+                if (bytes != null) writeAtomically(RESUME_FILE, bytes);
+                else Files.deleteIfExists(new File(dir, RESUME_FILE).toPath());
+            } catch (IOException e) {
+                System.err.println("resume: " + e.getMessage());
+            }
+        });
+    }
+
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(2, TimeUnit.SECONDS);
+            Leaderboard board = getLeaderboard();
+            if (board != null) board.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("leaderboard: " + e.getMessage());
+        }
+    }
+
+    private void addToLeaderboard(Record record) {
+        Leaderboard board = getLeaderboard();
+        if (board == null) return;
+        try {
+            board.add(record);
+        } catch (IOException e) {
+            System.err.println("leaderboard: " + e.getMessage());
+        }
+    }
+
+    private void append(Record record) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(new File(dir, STATS_FILE), true)) {
+            out.write((record.format() + "\n").getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        synchronized (this) {
+            keep(record);
+        }
+        if (++appendedSinceCompaction >= COMPACT_EVERY) compact();
+    }
+
+    private void keep(Record record) {
+        recent.addLast(record);
+        if (recent.size() > KEEP_RECENT) compacted.add(recent.removeFirst());
+    }
+
+    private void compact() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        synchronized (this) {
+            sb.append(compacted.format()).append('\n');
+            for (Record r : recent) sb.append(r.format()).append('\n');
+        }
+        writeAtomically(STATS_FILE, sb.toString().getBytes(StandardCharsets.UTF_8));
+        appendedSinceCompaction = 0;
+    }
+
+    private void writeAtomically(String name, byte[] data) throws IOException {
+        File target = new File(dir, name);
+        File temp = new File(dir, name + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            out.getFD().sync();
+        }
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static BufferedReader reader(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,99 @@
+package quadra;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+public class TextCache {
+
+    private static final class Layout {
+        final char[] chars;
+        final int width;
+
+        Layout(FontMetrics metrics, String text) {
+            this.chars = text.toCharArray();
+            this.width = metrics.charsWidth(chars, 0, chars.length);
+        }
+    }
+
+    public static final class Label {
+        private final Font font;
+        private final char[] chars = new char[48];
+        private final int prefixLength;
+        private int length = -1;
+        private int value;
+        private int width;
+
+        public Label(String prefix, Font font) {
+            this.font = font;
+            this.prefixLength = prefix.length();
+            prefix.getChars(0, prefixLength, chars, 0);
+        }
+
+        public void draw(Graphics2D g, int value, int x, int y) {
+            update(g, value);
+            g.setFont(font);
+            g.drawChars(chars, 0, length, x, y);
+        }
+
+        public void drawCentered(Graphics2D g, int value, int areaWidth, int y) {
+            update(g, value);
+            g.setFont(font);
+            g.drawChars(chars, 0, length, (areaWidth - width) / 2, y);
+        }
+
+        private void update(Graphics2D g, int value) {
+            if (length >= 0 && value == this.value) return;
+            this.value = value;
+            length = prefixLength + formatInt(value, chars, prefixLength);
+            width = g.getFontMetrics(font).charsWidth(chars, 0, length);
+        }
+    }
+
+    static int formatInt(int value, char[] out, int offset) {
+        long v = value;
+        boolean negative = v < 0;
+        if (negative) v = -v;
+        int digits = 1;
+        for (long p = 10; p <= v; p *= 10) digits++;
+        int length = digits + (negative ? 1 : 0);
+        int pos = offset + length;
+        do {
+            out[--pos] = (char) ('0' + v % 10);
+            v /= 10;
+        } while (v != 0);
+        if (negative) out[offset] = '-';
+        return length;
+    }
+
+    private final Map<Font, Map<String, Layout>> layouts = new IdentityHashMap<>();
+
+    public void draw(Graphics2D g, Font font, String text, int x, int y) {
+        Layout l = layout(g, font, text);
+        g.setFont(font);
+        g.drawChars(l.chars, 0, l.chars.length, x, y);
+    }
+
+    public void drawCentered(Graphics2D g, Font font, String text, int areaWidth, int y) {
+        Layout l = layout(g, font, text);
+        g.setFont(font);
+        g.drawChars(l.chars, 0, l.chars.length, (areaWidth - l.width) / 2, y);
+    }
+
+    private Layout layout(Graphics2D g, Font font, String text) {
+        Map<String, Layout> byText = layouts.get(font);
+        if (byText == null) {
+            byText = new HashMap<>();
+            layouts.put(font, byText);
+        }
+        Layout l = byText.get(text);
+        if (l == null) {
+            l = new Layout(g.getFontMetrics(font), text);
+            byText.put(text, l);
+        }
+        return l;
+    }
+}
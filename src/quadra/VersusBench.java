@@ -0,0 +1,115 @@
+package quadra;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+public class VersusBench {
+
+    static final class Bot {
+        private final String host;
+        private final int port;
+        private final LongFunction<Controller> controllers;
+        private final long maxTicks;
+        VersusClient client;
+        private Controller controller;
+        private GameEngine game;
+        private Replay replay;
+
+        Bot(String host, int port, LongFunction<Controller> controllers, long maxTicks) {
+            this.host = host;
+            this.port = port;
+            this.controllers = controllers;
+            this.maxTicks = maxTicks;
+        }
+
+        void join() throws IOException {
+            client = VersusClient.connect(host, port, false);
+            game = null;
+        }
+
+        boolean step() {
+            client.pump();
+            if (game == null && client.isStarted()) {
+                game = new GameEngine(VersusProtocol.BOARD_WIDTH, VersusProtocol.BOARD_HEIGHT);
+                game.start(client.getSeed());
+                replay = new Replay(game.getBoard().getWidth(), game.getBoard().getHeight(), client.getSeed());
+                controller = controllers.apply(client.getSeed() + client.getPlayer());
+            }
+            if (game != null && !game.isGameOver() && !client.isFinished()) {
+                for (int entry; (entry = client.nextGarbage()) >= 0; ) {
+                    replay.recordGarbage(game.getTickCount(), entry >>> 8, entry & 0xFF);
+                    game.queueGarbage(entry >>> 8, entry & 0xFF);
+                }
+                int input = controller.nextInput(game);
+                if (input != GameEngine.INPUT_NONE) {
+                    replay.record(game.getTickCount(), input);
+                    game.input(input);
+                }
+                game.tick();
+                if (game.getTickCount() >= maxTicks) client.resign(game, replay);
+                else client.sync(game, replay);
+            }
+            return client.isFinished();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> positional = new ArrayList<>(Arrays.asList(args));
+        boolean ai = positional.remove("--ai");
+        int matches = positional.size() > 0 ? Integer.parseInt(positional.get(0)) : ai ? 50 : 2000;
+        int players = positional.size() > 1 ? Integer.parseInt(positional.get(1)) : 2;
+        int threads = positional.size() > 2 ? Integer.parseInt(positional.get(2)) : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        long maxTicks = positional.size() > 3 ? Long.parseLong(positional.get(3)) : 6000;
+        LongFunction<Controller> controllers = ai ? s -> new BeamSearchAI() : BatchRunner.RandomController::new;
+
+        VersusServer server = new VersusServer(0, players, 0);
+        server.start();
+        int botsPerThread = players * 8;
+        AtomicLong mismatches = new AtomicLong();
+        long start = System.nanoTime();
+        List<Thread> drivers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread driver = new Thread(() -> {
+                try {
+                    List<Bot> bots = new ArrayList<>();
+                    for (int i = 0; i < botsPerThread; i++) {
+                        Bot bot = new Bot("localhost", server.getPort(), controllers, maxTicks);
+                        bot.join();
+                        bots.add(bot);
+                    }
+                    while (server.getMatchesFinished() < matches) {
+                        for (Bot bot : bots) if (bot.step()) {
+                            mismatches.addAndGet(bot.client.getMismatches());
+                            bot.client.close();
+                            bot.join();
+                        }
+                    }
+                    for (Bot bot : bots) bot.client.close();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }, "versus-bot-" + t);
+            drivers.add(driver);
+            driver.start();
+        }
+        for (Thread driver : drivers) driver.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        double serverCpu = threadBean.getThreadCpuTime(server.getThread().getId()) / 1e9;
+        long finished = server.getMatchesFinished();
+        server.close();
+
+        System.out.printf("matches=%d players=%d bots=%d threads=%d maxTicks=%d%n",
+                finished, players, botsPerThread * threads, threads, maxTicks);
+        System.out.printf("%.2f s, %.0f matches/s, server cpu %.2f s, %.0f matches per server core-second%n",
+                seconds, finished / seconds, serverCpu, finished / serverCpu);
+        System.out.printf("relayed=%d messages, in=%d KB, out=%d KB, replica mismatches=%d%n",
+                server.getMessagesRelayed(), server.getBytesIn() / 1024, server.getBytesOut() / 1024, mismatches.get());
+    }
+}
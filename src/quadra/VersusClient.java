@@ -0,0 +1,283 @@
+package quadra;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+public class VersusClient implements Closeable {
+
+    private static final int BUFFER_BYTES = 8 * 1024;
+    private static final int HEARTBEAT_TICKS = 5;
+    private static final int MAX_FRAME_ENTRIES = 2048;
+    private static final int GARBAGE_CAPACITY = 64;
+
+    private final SocketChannel channel;
+    private final boolean snapshots;
+    private ByteBuffer in = ByteBuffer.allocate(BUFFER_BYTES);
+    private ByteBuffer out = ByteBuffer.allocate(BUFFER_BYTES);
+    private boolean connected;
+
+    private volatile boolean started;
+    private volatile boolean finished;
+    private volatile String error;
+    private volatile int waiting;
+    private volatile int needed;
+    private volatile int players;
+    private volatile int player = -1;
+    private volatile int alive;
+    private volatile int winner = -1;
+    private volatile int place;
+    private long seed;
+
+    private GameEngine[] replicas;
+    private volatile GameSnapshot[] opponents = new GameSnapshot[0];
+    private long mismatches;
+
+    private final int[] garbage = new int[GARBAGE_CAPACITY];
+    private int garbageRead;
+    private int garbageWrite;
+
+    private int sentIndex;
+    private long sentTick = -1;
+    private boolean dead;
+
+    private VersusClient(SocketChannel channel, boolean snapshots) {
+        this.channel = channel;
+        this.snapshots = snapshots;
+    }
+
+    public static VersusClient connect(String host, int port, boolean snapshots) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        VersusClient client = new VersusClient(channel, snapshots);
+        client.connected = channel.connect(new InetSocketAddress(host, port));
+        if (client.connected) client.hello();
+        return client;
+    }
+
+    public boolean isStarted() { return started; }
+    public boolean isFinished() { return finished; }
+    public String getError() { return error; }
+    public long getSeed() { return seed; }
+    public int getPlayers() { return players; }
+    public int getPlayer() { return player; }
+    public int getAlive() { return alive; }
+    public int getWinner() { return winner; }
+    public boolean isWinner() { return winner >= 0 && winner == player; }
+    public int getPlace() { return place; }
+    public int getWaiting() { return waiting; }
+    public int getNeeded() { return needed; }
+    public GameSnapshot[] getOpponents() { return opponents; }
+    public long getMismatches() { return mismatches; }
+
+    public void pump() {
+        if (finished && !channel.isOpen()) return;
+        try {
+            if (!connected) {
+                if (!channel.finishConnect()) return;
+                connected = true;
+                hello();
+            }
+            int n = channel.read(in);
+            if (n < 0) {
+                fail("conexao encerrada");
+                return;
+            }
+            if (n > 0) receive();
+            flush();
+        } catch (IOException | RuntimeException e) {
+            fail(e.getMessage() == null ? e.toString() : e.getMessage());
+        }
+    }
+
+    public int nextGarbage() {
+        if (garbageRead == garbageWrite) return -1;
+        return garbage[garbageRead++ % GARBAGE_CAPACITY];
+    }
+
+    public void sync(GameEngine game, Replay replay) {
+        send(game, replay, game.isGameOver());
+    }
+
+    public void resign(GameEngine game, Replay replay) {
+        send(game, replay, true);
+    }
+
+    private void send(GameEngine game, Replay replay, boolean over) {
+        if (!started || dead || !channel.isOpen()) return;
+        int attack = game.takeAttack();
+        if (attack > 0) {
+            out = VersusProtocol.ensure(out, 16);
+            int start = VersusProtocol.begin(out, VersusProtocol.ATTACK);
+            VersusProtocol.putVarint(out, attack);
+            VersusProtocol.end(out, start);
+        }
+        long tick = game.getTickCount();
+        int count = replay.getEventCount();
+        if (count > sentIndex || tick - sentTick >= HEARTBEAT_TICKS || over) {
+            do {
+                int last = Math.min(count, sentIndex + MAX_FRAME_ENTRIES);
+                writeFrame(replay, sentIndex, last, last == count ? tick : replay.getTick(last - 1));
+                sentIndex = last;
+            } while (sentIndex < count);
+            sentTick = tick;
+        }
+        if (over) {
+            out = VersusProtocol.ensure(out, 24);
+            int start = VersusProtocol.begin(out, VersusProtocol.DEAD);
+            VersusProtocol.putVarint(out, tick);
+            VersusProtocol.putVarint(out, game.getScore());
+            VersusProtocol.end(out, start);
+            dead = true;
+        }
+        try {
+            flush();
+        } catch (IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    // FRAME: base tick, entry count, entries as (tick delta << 3 | input) with a garbage argument, horizon delta
+    private void writeFrame(Replay replay, int from, int to, long horizon) {
+        out = VersusProtocol.ensure(out, 32 + (to - from) * 12);
+        int start = VersusProtocol.begin(out, VersusProtocol.FRAME);
+        long previous = from > 0 ? replay.getTick(from - 1) : 0;
+        VersusProtocol.putVarint(out, previous);
+        VersusProtocol.putVarint(out, to - from);
+        for (int i = from; i < to; i++) {
+            int input = replay.getInput(i);
+            VersusProtocol.putVarint(out, (replay.getTick(i) - previous) << 3 | input);
+            if (input == Replay.GARBAGE) VersusProtocol.putVarint(out, replay.getGarbageLines(i) << 8 | replay.getGarbageHole(i));
+            previous = replay.getTick(i);
+        }
+        VersusProtocol.putVarint(out, horizon - previous);
+        VersusProtocol.end(out, start);
+    }
+
+    private void hello() throws IOException {
+        out = VersusProtocol.ensure(out, 8);
+        int start = VersusProtocol.begin(out, VersusProtocol.HELLO);
+        out.put((byte) VersusProtocol.VERSION);
+        VersusProtocol.end(out, start);
+        flush();
+    }
+
+    private void flush() throws IOException {
+        if (!connected || out.position() == 0) return;
+        out.flip();
+        channel.write(out);
+        out.compact();
+    }
+
+    private void receive() {
+        in.flip();
+        boolean changed = false;
+        while (in.remaining() >= 2) {
+            int length = in.getShort(in.position()) & 0xFFFF;
+            if (in.remaining() < 2 + length) break;
+            int end = in.position() + 2 + length;
+            in.position(in.position() + 2);
+            changed |= handle(in.get() & 0xFF);
+            in.position(end);
+        }
+        in.compact();
+        if (!in.hasRemaining()) in = VersusProtocol.ensure(in, in.capacity());
+        if (changed && snapshots) publishOpponents();
+    }
+
+    private boolean handle(int type) {
+        switch (type) {
+            case VersusProtocol.LOBBY:
+                waiting = in.get() & 0xFF;
+                needed = in.get() & 0xFF;
+                return false;
+            case VersusProtocol.START:
+                seed = in.getLong();
+                player = in.get() & 0xFF;
+                players = in.get() & 0xFF;
+                alive = players;
+                replicas = new GameEngine[players];
+                for (int i = 0; i < players; i++) {
+                    if (i == player) continue;
+                    replicas[i] = new GameEngine(VersusProtocol.BOARD_WIDTH, VersusProtocol.BOARD_HEIGHT);
+                    replicas[i].start(seed);
+                }
+                started = true;
+                return true;
+            case VersusProtocol.RELAY:
+                applyFrame(replicas[in.get() & 0xFF]);
+                return true;
+            case VersusProtocol.GARBAGE:
+                int lines = (int) VersusProtocol.getVarint(in);
+                int hole = in.get() & 0xFF;
+                if (garbageWrite - garbageRead < GARBAGE_CAPACITY) garbage[garbageWrite++ % GARBAGE_CAPACITY] = lines << 8 | hole;
+                return false;
+            case VersusProtocol.ELIMINATED:
+                int index = in.get() & 0xFF;
+                int at = in.get() & 0xFF;
+                long tick = VersusProtocol.getVarint(in);
+                int score = (int) VersusProtocol.getVarint(in);
+                alive = at - 1;
+                if (index == player) place = at;
+                else if (tick > 0 && (replicas[index].getTickCount() != tick || replicas[index].getScore() != score)) mismatches++;
+                return true;
+            case VersusProtocol.END:
+                winner = in.get();
+                if (winner == player) place = 1;
+                finished = true;
+                return true;
+            default:
+                throw new IllegalStateException("unknown message " + type);
+        }
+    }
+
+    private void applyFrame(GameEngine replica) {
+        long tick = VersusProtocol.getVarint(in);
+        int count = (int) VersusProtocol.getVarint(in);
+        for (int i = 0; i < count; i++) {
+            long entry = VersusProtocol.getVarint(in);
+            tick += entry >>> 3;
+            int input = (int) (entry & 7);
+            int argument = input == Replay.GARBAGE ? (int) VersusProtocol.getVarint(in) : 0;
+            advance(replica, tick);
+            if (input == Replay.GARBAGE) replica.queueGarbage(argument >>> 8, argument & 0xFF);
+            else replica.input(input);
+        }
+        advance(replica, tick + VersusProtocol.getVarint(in));
+    }
+
+    private static void advance(GameEngine replica, long tick) {
+        while (replica.getTickCount() < tick && !replica.isGameOver()) replica.tick();
+    }
+
+    private void publishOpponents() {
+        if (replicas == null) return;
+        GameSnapshot[] previous = opponents;
+        GameSnapshot[] next = new GameSnapshot[players - 1];
+        for (int i = 0, j = 0; i < players; i++) {
+            if (i == player) continue;
+            next[j] = new GameSnapshot(replicas[i], j < previous.length ? previous[j] : null, VersusProtocol.BOARD_HEIGHT, 0, 0);
+            j++;
+        }
+        opponents = next;
+    }
+
+    private void fail(String message) {
+        if (!finished) error = message;
+        finished = true;
+        close();
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package quadra;
+
+import java.nio.ByteBuffer;
+
+// Every message is [u16 length][u8 type][payload]; length covers type and payload.
+final class VersusProtocol {
+
+    static final int VERSION = 2;
+    static final int DEFAULT_PORT = 7777;
+    static final int MIN_PLAYERS = 2;
+    static final int MAX_PLAYERS = 8;
+    static final int BOARD_WIDTH = 10;
+    static final int BOARD_HEIGHT = 20;
+    static final int MAX_MESSAGE = 0xFFFF;
+
+    // client -> server: HELLO version; FRAME replay entries (relayed as is); ATTACK lines; DEAD tick, score
+    static final int HELLO = 1;
+    static final int FRAME = 2;
+    static final int ATTACK = 3;
+    static final int DEAD = 4;
+
+    // server -> client: LOBBY waiting, needed; START seed, player, players; RELAY player, frame;
+    // GARBAGE lines, hole; ELIMINATED player, place, tick, score; END winner
+    static final int LOBBY = 16;
+    static final int START = 17;
+    static final int RELAY = 18;
+    static final int GARBAGE = 19;
+    static final int ELIMINATED = 20;
+    static final int END = 21;
+
+    private VersusProtocol() {}
+
+    static int begin(ByteBuffer out, int type) {
+        int start = out.position();
+        out.putShort((short) 0);
+        out.put((byte) type);
+        return start;
+    }
+
+    static void end(ByteBuffer out, int start) {
+        int length = out.position() - start - 2;
+        if (length > MAX_MESSAGE) throw new IllegalStateException("message too large: " + length);
+        out.putShort(start, (short) length);
+    }
+
+    static ByteBuffer ensure(ByteBuffer buffer, int extra) {
+        return ensure(buffer, extra, Integer.MAX_VALUE);
+    }
+
+    // null if the buffer would have to grow past limit bytes
+    static ByteBuffer ensure(ByteBuffer buffer, int extra, int limit) {
+        if (buffer.remaining() >= extra) return buffer;
+        if (buffer.position() + extra > limit) return null;
+        int capacity = buffer.capacity();
+        while (capacity - buffer.position() < extra) capacity = (int) Math.min(2L * capacity, limit);
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+    static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long getVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 63) throw new IllegalArgumentException("malformed varint");
+            int b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package quadra;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class VersusServer implements Runnable, Closeable {
+
+    private static final int BUFFER_BYTES = 16 * 1024;
+    // the largest message with its length prefix always fits, so a full input buffer this size is a broken client
+    private static final int MAX_IN_BYTES = 128 * 1024;
+    // a peer with this much unsent output has stopped reading; it is disconnected instead of growing the heap
+    private static final int MAX_OUT_BYTES = 1024 * 1024;
+
+    private static final class Peer {
+        final SocketChannel channel;
+        SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocate(BUFFER_BYTES);
+        ByteBuffer out = ByteBuffer.allocate(BUFFER_BYTES);
+        boolean dirty;
+        boolean overflowed;
+        Match match;
+        int index;
+        int nextTarget;
+        boolean alive;
+
+        Peer(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private static final class Match {
+        final Peer[] peers;
+        final SplittableRandom holes;
+        int alive;
+
+        Match(Peer[] peers, long seed) {
+            this.peers = peers;
+            this.holes = new SplittableRandom(seed ^ 0x5DEECE66DL);
+            this.alive = peers.length;
+        }
+    }
+
+    private final int playersPerMatch;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final SplittableRandom seeds;
+    private final ArrayDeque<Peer> lobby = new ArrayDeque<>();
+    private final List<Peer> dirty = new ArrayList<>();
+    private final List<Peer> overflowed = new ArrayList<>();
+    private Thread thread;
+
+    private volatile long matchesStarted;
+    private volatile long matchesFinished;
+    private volatile long messagesRelayed;
+    private volatile long bytesIn;
+    private volatile long bytesOut;
+
+    public VersusServer(int port, int playersPerMatch, long seed) throws IOException {
+        if (playersPerMatch < VersusProtocol.MIN_PLAYERS || playersPerMatch > VersusProtocol.MAX_PLAYERS)
+            throw new IllegalArgumentException("players must be 2..8: " + playersPerMatch);
+        this.playersPerMatch = playersPerMatch;
+        this.seeds = new SplittableRandom(seed);
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), 256);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() { return server.socket().getLocalPort(); }
+    public int getPlayersPerMatch() { return playersPerMatch; }
+    public Thread getThread() { return thread; }
+    public long getMatchesStarted() { return matchesStarted; }
+    public long getMatchesFinished() { return matchesFinished; }
+    public long getMessagesRelayed() { return messagesRelayed; }
+    public long getBytesIn() { return bytesIn; }
+    public long getBytesOut() { return bytesOut; }
+
+    public Thread start() {
+        thread = new Thread(this, "quadra-versus-server");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    @Override
+    public void close() throws IOException {
+        selector.close();
+        server.close();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (selector.isOpen()) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else {
+                        Peer peer = (Peer) key.attachment();
+                        if (key.isReadable()) read(peer);
+                        if (key.isValid() && key.isWritable()) flush(peer);
+                    }
+                }
+                for (int i = 0; i < overflowed.size(); i++) disconnect(overflowed.get(i));
+                overflowed.clear();
+                for (int i = 0; i < dirty.size(); i++) flush(dirty.get(i));
+                dirty.clear();
+            }
+        } catch (ClosedSelectorException e) {
+            // closed
+        } catch (IOException e) {
+            System.err.println("versus server: " + e.getMessage());
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Peer peer = new Peer(channel);
+            peer.key = channel.register(selector, SelectionKey.OP_READ, peer);
+        }
+    }
+
+    private void read(Peer peer) {
+        try {
+            int n = peer.channel.read(peer.in);
+            if (n < 0) {
+                disconnect(peer);
+                return;
+            }
+            bytesIn += n;
+            ByteBuffer in = peer.in;
+            in.flip();
+            while (in.remaining() >= 2) {
+                int length = in.getShort(in.position()) & 0xFFFF;
+                if (in.remaining() < 2 + length) break;
+                int end = in.position() + 2 + length;
+                in.position(in.position() + 2);
+                int type = in.get() & 0xFF;
+                handle(peer, type, in, end);
+                in.position(end);
+            }
+            in.compact();
+            if (!in.hasRemaining()) {
+                peer.in = VersusProtocol.ensure(in, in.capacity(), MAX_IN_BYTES);
+                if (peer.in == null) throw new IllegalStateException("input buffer full");
+            }
+        } catch (IOException | RuntimeException e) {
+            disconnect(peer);
+        }
+    }
+
+    private void handle(Peer peer, int type, ByteBuffer in, int end) {
+        switch (type) {
+            case VersusProtocol.HELLO:
+                if ((in.get() & 0xFF) != VersusProtocol.VERSION || peer.match != null || lobby.contains(peer))
+                    throw new IllegalStateException("bad hello");
+                lobby.addLast(peer);
+                if (lobby.size() >= playersPerMatch) startMatch();
+                else for (Peer p : lobby) sendLobby(p);
+                break;
+            case VersusProtocol.FRAME:
+                if (peer.match == null || !peer.alive) break;
+                relay(peer, in, end);
+                break;
+            case VersusProtocol.ATTACK:
+                if (peer.match == null || !peer.alive) break;
+                attack(peer, (int) VersusProtocol.getVarint(in));
+                break;
+            case VersusProtocol.DEAD:
+                if (peer.match == null || !peer.alive) break;
+                eliminate(peer, VersusProtocol.getVarint(in), (int) VersusProtocol.getVarint(in));
+                break;
+            default:
+                throw new IllegalStateException("unknown message " + type);
+        }
+    }
+
+    private void startMatch() {
+        Peer[] peers = new Peer[playersPerMatch];
+        for (int i = 0; i < peers.length; i++) peers[i] = lobby.removeFirst();
+        long seed = seeds.nextLong();
+        Match match = new Match(peers, seed);
+        for (int i = 0; i < peers.length; i++) {
+            Peer p = peers[i];
+            p.match = match;
+            p.index = i;
+            p.nextTarget = i + 1;
+            p.alive = true;
+            ByteBuffer out = reserve(p, 16);
+            int start = VersusProtocol.begin(out, VersusProtocol.START);
+            out.putLong(seed);
+            out.put((byte) i);
+            out.put((byte) peers.length);
+            VersusProtocol.end(out, start);
+        }
+        matchesStarted++;
+    }
+
+    private void sendLobby(Peer p) {
+        ByteBuffer out = reserve(p, 8);
+        int start = VersusProtocol.begin(out, VersusProtocol.LOBBY);
+        out.put((byte) lobby.size());
+        out.put((byte) playersPerMatch);
+        VersusProtocol.end(out, start);
+    }
+
+    private void relay(Peer from, ByteBuffer in, int end) {
+        int length = end - in.position();
+        for (Peer p : from.match.peers) {
+            if (p == from || p.match != from.match) continue;
+            ByteBuffer out = reserve(p, length + 8);
+            int start = VersusProtocol.begin(out, VersusProtocol.RELAY);
+            out.put((byte) from.index);
+            out.put(in.array(), in.arrayOffset() + in.position(), length);
+            VersusProtocol.end(out, start);
+            messagesRelayed++;
+        }
+    }
+
+    private void attack(Peer from, int lines) {
+        Match match = from.match;
+        if (lines <= 0 || match.alive < 2) return;
+        Peer target = null;
+        for (int i = 0; i < match.peers.length && target == null; i++) {
+            Peer candidate = match.peers[(from.nextTarget + i) % match.peers.length];
+            if (candidate != from && candidate.alive) target = candidate;
+        }
+        if (target == null) return;
+        from.nextTarget = target.index + 1;
+        ByteBuffer out = reserve(target, 16);
+        int start = VersusProtocol.begin(out, VersusProtocol.GARBAGE);
+        VersusProtocol.putVarint(out, lines);
+        out.put((byte) match.holes.nextInt(VersusProtocol.BOARD_WIDTH));
+        VersusProtocol.end(out, start);
+    }
+
+    private void eliminate(Peer peer, long tick, int score) {
+        Match match = peer.match;
+        peer.alive = false;
+        int place = match.alive--;
+        for (Peer p : match.peers) {
+            if (p.match != match) continue;
+            ByteBuffer out = reserve(p, 24);
+            int start = VersusProtocol.begin(out, VersusProtocol.ELIMINATED);
+            out.put((byte) peer.index);
+            out.put((byte) place);
+            VersusProtocol.putVarint(out, tick);
+            VersusProtocol.putVarint(out, score);
+            VersusProtocol.end(out, start);
+        }
+        if (match.alive > 1) return;
+        int winner = -1;
+        for (Peer p : match.peers) if (p.alive) winner = p.index;
+        for (Peer p : match.peers) {
+            if (p.match != match) continue;
+            ByteBuffer out = reserve(p, 8);
+            int start = VersusProtocol.begin(out, VersusProtocol.END);
+            out.put((byte) winner);
+            VersusProtocol.end(out, start);
+            p.match = null;
+            p.alive = false;
+        }
+        matchesFinished++;
+    }
+
+    private ByteBuffer reserve(Peer p, int bytes) {
+        ByteBuffer out = VersusProtocol.ensure(p.out, bytes, MAX_OUT_BYTES);
+        if (out == null) {
+            // drop the backlog and disconnect the peer once the message being handled is done
+            p.out.clear();
+            out = VersusProtocol.ensure(p.out, bytes);
+            if (!p.overflowed) {
+                p.overflowed = true;
+                overflowed.add(p);
+            }
+        }
+        p.out = out;
+        if (!p.dirty) {
+            p.dirty = true;
+            dirty.add(p);
+        }
+        return p.out;
+    }
+
+    private void flush(Peer p) {
+        p.dirty = false;
+        if (!p.key.isValid() || p.overflowed) return;
+        try {
+            p.out.flip();
+            bytesOut += p.channel.write(p.out);
+            boolean pending = p.out.hasRemaining();
+            p.out.compact();
+            p.key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        } catch (IOException e) {
+            disconnect(p);
+        }
+    }
+
+    private void disconnect(Peer peer) {
+        peer.key.cancel();
+        try {
+            peer.channel.close();
+        } catch (IOException e) {
+            // already gone
+        }
+        if (lobby.remove(peer)) for (Peer p : lobby) sendLobby(p);
+        if (peer.match != null && peer.alive) eliminate(peer, 0, 0);
+        peer.match = null;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : VersusProtocol.DEFAULT_PORT;
+        int players = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        VersusServer server = new VersusServer(port, players, System.nanoTime());
+        System.out.printf("versus: listening on port %d, %d players per match%n", server.getPort(), players);
+        server.start().join();
+    }
+}
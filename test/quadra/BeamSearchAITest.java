@@ -0,0 +1,84 @@
+package quadra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class BeamSearchAITest {
+
+    // with a beam wider than every candidate the search is exhaustive, so its choice has to be worth exactly as much
+    // as the best two-piece line found by pressing keys on the engine; the first piece of every game can still hold
+    // into the empty slot, which is the case where the lookahead piece is the second one in the preview
+    @Test
+    void choosesTheBestTwoPieceLine() {
+        BeamSearchAI ai = new BeamSearchAI(BeamSearchAI.MAX_CANDIDATES, null);
+        int holds = 0;
+        for (long seed = 0; seed < 40; seed++) {
+            GameEngine game = new GameEngine();
+            game.start(seed);
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int piece = 0; piece < 6 && !game.isGameOver(); piece++) {
+                GameState state = new GameState();
+                game.save(state);
+                double best = Double.NEGATIVE_INFINITY;
+                for (int hold = 0; hold < 2; hold++) {
+                    for (int rotations = 0; rotations < PieceTable.ROTATIONS; rotations++) {
+                        for (int shift = -Board.MAX_WIDTH; shift <= Board.MAX_WIDTH; shift++) {
+                            game.restore(state);
+                            if (hold == 1 && game.input(GameEngine.INPUT_HOLD) == 0) continue;
+                            best = Math.max(best, drop(game, rotations, shift, true));
+                        }
+                    }
+                }
+
+                game.restore(state);
+                int move = ai.choose(game);
+                game.restore(state);
+                if (game.getHoldType() == 0 && game.canHold() && BeamSearchAI.hold(move)) holds++;
+                int lines = game.getLinesCleared();
+                for (int input = 0; input != GameEngine.INPUT_HARD_DROP; ) {
+                    input = ai.nextInput(game);
+                    game.input(input);
+                }
+                double chosen = (game.getLinesCleared() - lines) * BeamSearchAI.LINES_WEIGHT + follower(game);
+                assertEquals(best, chosen, 1e-9, "seed " + seed + " piece " + piece);
+
+                // leave a rough, low stack behind for the next position
+                game.restore(state);
+                drop(game, random.nextInt(PieceTable.ROTATIONS), random.nextInt(9) - 4, false);
+            }
+        }
+        assertTrue(holds > 0, "no position held into the empty slot");
+    }
+
+    // rotates, shifts and hard drops the current piece; the score the search gives that line, or 0 if not scoring
+    private static double drop(GameEngine game, int rotations, int shift, boolean score) {
+        for (int i = 0; i < rotations; i++) game.input(GameEngine.INPUT_ROTATE);
+        for (int i = 0; i < Math.abs(shift); i++) game.input(shift < 0 ? GameEngine.INPUT_LEFT : GameEngine.INPUT_RIGHT);
+        int lines = game.getLinesCleared();
+        game.input(GameEngine.INPUT_HARD_DROP);
+        return score ? (game.getLinesCleared() - lines) * BeamSearchAI.LINES_WEIGHT + follower(game) : 0;
+    }
+
+    // the best evaluation of any landing of the piece now falling, without holding it
+    private static double follower(GameEngine game) {
+        if (game.isGameOver()) return -1e9;
+        GameState state = new GameState();
+        game.save(state);
+        double best = -1e9;
+        for (int rotations = 0; rotations < PieceTable.ROTATIONS; rotations++) {
+            for (int shift = -Board.MAX_WIDTH; shift <= Board.MAX_WIDTH; shift++) {
+                game.restore(state);
+                for (int i = 0; i < rotations; i++) game.input(GameEngine.INPUT_ROTATE);
+                for (int i = 0; i < Math.abs(shift); i++) game.input(shift < 0 ? GameEngine.INPUT_LEFT : GameEngine.INPUT_RIGHT);
+                int lines = game.getLinesCleared();
+                game.input(GameEngine.INPUT_HARD_DROP);
+                best = Math.max(best, BeamSearchAI.evaluate(game.getBoard(), game.getLinesCleared() - lines));
+            }
+        }
+        game.restore(state);
+        return best;
+    }
+}
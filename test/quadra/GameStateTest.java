@@ -0,0 +1,129 @@
+package quadra;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class GameStateTest {
+
+    private static final int[][] SIZES = {{10, 20}, {4, 40}, {Board.MAX_WIDTH, 200}};
+    private static final int TICKS = 4000;
+
+    // a game saved, written, read back and restored plays on exactly like one that was never interrupted
+    @Test
+    void restoredGameMatchesUninterruptedRun() throws IOException {
+        for (int[] size : SIZES) {
+            for (int kind = 0; kind < Randomizer.KINDS; kind++) {
+                String label = size[0] + "x" + size[1] + " randomizer " + kind;
+                GameEngine reference = newGame(size, kind);
+                GameEngine interrupted = newGame(size, kind);
+                play(reference, 0, TICKS);
+                int savedAt = (int) reference.getTickCount() / 2;
+                play(interrupted, 0, savedAt);
+
+                GameState saved = new GameState();
+                interrupted.save(saved);
+                GameEngine resumed = new GameEngine();
+                resumed.restore(GameState.read(new ByteArrayInputStream(bytes(saved))));
+                play(resumed, savedAt, TICKS);
+                assertSame(reference, resumed, label);
+            }
+        }
+    }
+
+    @Test
+    void rewindReplaysTheSameTicks() {
+        for (int[] size : SIZES) {
+            GameEngine reference = newGame(size, Randomizer.BAG_7);
+            GameEngine game = newGame(size, Randomizer.BAG_7);
+            play(reference, 0, TICKS);
+            int step = (int) reference.getTickCount() / 6 + 1;
+            RollbackBuffer rollback = new RollbackBuffer(8);
+            for (int tick = 0; !game.isGameOver(); tick += step) {
+                rollback.push(game);
+                play(game, tick, tick + step);
+            }
+            assertTrue(rollback.rewind(game, 3 * step));
+            assertEquals(3 * step, game.getTickCount());
+            play(game, 3 * step, TICKS);
+            assertSame(reference, game, size[0] + "x" + size[1]);
+        }
+    }
+
+    @Test
+    void readRejectsCorruptState() throws IOException {
+        GameEngine game = newGame(SIZES[0], Randomizer.BAG_7);
+        play(game, 0, 100);
+        GameState state = new GameState();
+        game.save(state);
+
+        state.x = state.width;
+        assertThrows(IOException.class, () -> GameState.read(new ByteArrayInputStream(bytes(state))));
+        game.save(state);
+        state.y = state.height;
+        assertThrows(IOException.class, () -> GameState.read(new ByteArrayInputStream(bytes(state))));
+        game.save(state);
+        state.dropInterval = 0;
+        assertThrows(IOException.class, () -> GameState.read(new ByteArrayInputStream(bytes(state))));
+        game.save(state);
+        state.pendingGarbage[0] = 1 << 8 | state.width;
+        state.pendingCount = 1;
+        state.pendingLines = 1;
+        assertThrows(IOException.class, () -> GameState.read(new ByteArrayInputStream(bytes(state))));
+        game.save(state);
+        state.pendingLines++;
+        assertThrows(IOException.class, () -> GameState.read(new ByteArrayInputStream(bytes(state))));
+    }
+
+    private static GameEngine newGame(int[] size, int kind) {
+        GameEngine game = new GameEngine(size[0], size[1]);
+        game.setRandomizer(kind);
+        game.start(size[0] * 31L + kind);
+        return game;
+    }
+
+    // inputs and garbage depend only on the tick, so any run over the same ticks sees the same stream;
+    // two thirds of the draws are not inputs, which keeps the small boards alive a little longer
+    private static void play(GameEngine game, int from, int to) {
+        for (int tick = from; tick < to && !game.isGameOver(); tick++) {
+            SplittableRandom random = new SplittableRandom(tick);
+            game.input(random.nextInt(3 * GameEngine.INPUT_HOLD));
+            if (random.nextInt(200) == 0) game.queueGarbage(1 + random.nextInt(3), random.nextInt(game.getBoard().getWidth()));
+            game.tick();
+        }
+    }
+
+    private static void assertSame(GameEngine expected, GameEngine actual, String label) {
+        assertEquals(expected.getTickCount(), actual.getTickCount(), label);
+        assertEquals(expected.getScore(), actual.getScore(), label);
+        assertEquals(expected.getLinesCleared(), actual.getLinesCleared(), label);
+        assertEquals(expected.getPieceCount(), actual.getPieceCount(), label);
+        Board board = expected.getBoard();
+        for (int y = 0; y < board.getHeight(); y++) {
+            assertEquals(board.getRow(y), actual.getBoard().getRow(y), label + " row " + y);
+            for (int x = 0; x < board.getWidth(); x++) assertEquals(board.get(x, y), actual.getBoard().get(x, y), label);
+        }
+        GameState a = new GameState();
+        GameState b = new GameState();
+        expected.save(a);
+        actual.save(b);
+        try {
+            assertArrayEquals(bytes(a), bytes(b), label);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    static byte[] bytes(GameState state) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        state.write(out);
+        return out.toByteArray();
+    }
+}
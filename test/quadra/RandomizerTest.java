@@ -0,0 +1,62 @@
+package quadra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+// The randomizers reimplement SplittableRandom inline so their state can be saved and restored; seeded replays
+// and versus replicas depend on the stream staying identical to the JDK class.
+class RandomizerTest {
+
+    private static final long[] SEEDS = {0, 1, 42, -1, 0x123456789ABCDEFL, Long.MIN_VALUE, Long.MAX_VALUE};
+    private static final int PIECES = 10_000;
+
+    @Test
+    void nextIntMatchesSplittableRandom() {
+        for (long seed : SEEDS) {
+            Randomizer randomizer = Randomizer.create(Randomizer.MEMORYLESS);
+            randomizer.reset(seed);
+            SplittableRandom expected = new SplittableRandom(seed);
+            for (int i = 0; i < PIECES; i++) {
+                int bound = 1 + i % 97;
+                assertEquals(expected.nextInt(bound), randomizer.nextInt(bound), "seed " + seed + " draw " + i);
+            }
+        }
+    }
+
+    @Test
+    void bagsMatchShuffleOverSplittableRandom() {
+        for (int copies = 1; copies <= 2; copies++) {
+            for (long seed : SEEDS) {
+                Randomizer randomizer = Randomizer.create(copies == 1 ? Randomizer.BAG_7 : Randomizer.BAG_14);
+                randomizer.reset(seed);
+                SplittableRandom random = new SplittableRandom(seed);
+                int[] bag = new int[PieceTable.PIECE_TYPES * copies];
+                for (int i = 0; i < PIECES; i++) {
+                    int index = i % bag.length;
+                    if (index == 0) {
+                        for (int j = 0; j < bag.length; j++) bag[j] = 1 + j % PieceTable.PIECE_TYPES;
+                        for (int j = bag.length; j > 1; j--) {
+                            int k = random.nextInt(j);
+                            int swap = bag[j - 1];
+                            bag[j - 1] = bag[k];
+                            bag[k] = swap;
+                        }
+                    }
+                    assertEquals(bag[index], randomizer.next(), "seed " + seed + " piece " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void memorylessMatchesSplittableRandom() {
+        for (long seed : SEEDS) {
+            Randomizer randomizer = Randomizer.create(Randomizer.MEMORYLESS);
+            randomizer.reset(seed);
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int i = 0; i < PIECES; i++) assertEquals(1 + random.nextInt(PieceTable.PIECE_TYPES), randomizer.next());
+        }
+    }
+}
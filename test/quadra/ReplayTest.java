@@ -0,0 +1,74 @@
+package quadra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class ReplayTest {
+
+    private static final long MAX_TICKS = 200_000;
+
+    @Test
+    void seededGameRoundTrips() throws IOException {
+        GameEngine game = new GameEngine(10, 20);
+        game.start(7);
+        Replay replay = play(game, new Replay(10, 20, 7, game.getRandomizer()), 3);
+        Replay read = roundTrip(replay);
+        assertNull(read.getStart());
+        assertTrue(read.verify());
+    }
+
+    // a resumed game records from its saved state, so it can still be verified and played back
+    @Test
+    void resumedGameRoundTrips() throws IOException {
+        for (long seed = 1; seed <= 5; seed++) {
+            GameEngine game = new GameEngine(12, 30);
+            game.start(seed);
+            Controller controller = new BatchRunner.RandomController(seed);
+            while (game.getTickCount() < 300 && !game.isGameOver()) {
+                game.input(controller.nextInput(game));
+                game.tick();
+            }
+            GameState saved = new GameState();
+            game.save(saved);
+
+            GameEngine resumed = new GameEngine();
+            resumed.restore(GameState.read(new ByteArrayInputStream(GameStateTest.bytes(saved))));
+            GameState start = new GameState();
+            resumed.save(start);
+            Replay replay = play(resumed, new Replay(start), seed);
+
+            Replay read = roundTrip(replay);
+            assertNotNull(read.getStart());
+            assertEquals(saved.getTickCount(), read.getStart().getTickCount());
+            assertTrue(read.verify(), "seed " + seed);
+            assertEquals(resumed.getScore(), read.simulate().getScore());
+        }
+    }
+
+    private static Replay play(GameEngine game, Replay replay, long seed) {
+        Controller controller = new BatchRunner.RandomController(seed);
+        while (!game.isGameOver() && game.getTickCount() < MAX_TICKS) {
+            int input = controller.nextInput(game);
+            if (input != GameEngine.INPUT_NONE) {
+                replay.record(game.getTickCount(), input);
+                game.input(input);
+            }
+            game.tick();
+        }
+        replay.finish(game.getTickCount(), game.getScore(), game.getLinesCleared());
+        return replay;
+    }
+
+    private static Replay roundTrip(Replay replay) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        replay.write(out);
+        return Replay.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
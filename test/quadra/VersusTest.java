@@ -0,0 +1,59 @@
+package quadra;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class VersusTest {
+
+    private static final long MAX_TICKS = 6000;
+    private static final long TIMEOUT_NANOS = 60_000_000_000L;
+
+    @Test
+    void twoRandomBotsFinishWithoutReplicaMismatches() throws Exception {
+        playMatches(2, 3, false);
+    }
+
+    @Test
+    void fourAiBotsFinishWithoutReplicaMismatches() throws Exception {
+        playMatches(4, 1, true);
+    }
+
+    private static void playMatches(int players, int matches, boolean ai) throws Exception {
+        try (VersusServer server = new VersusServer(0, players, 42)) {
+            server.start();
+            for (int match = 1; match <= matches; match++) {
+                List<VersusBench.Bot> bots = new ArrayList<>();
+                for (int i = 0; i < players; i++) {
+                    VersusBench.Bot bot = new VersusBench.Bot("localhost", server.getPort(),
+                            ai ? s -> new BeamSearchAI() : BatchRunner.RandomController::new, MAX_TICKS);
+                    bot.join();
+                    bots.add(bot);
+                }
+                long deadline = System.nanoTime() + TIMEOUT_NANOS;
+                int finished = 0;
+                while (finished < players) {
+                    assertTrue(System.nanoTime() - deadline < 0, "match " + match + " did not finish in time");
+                    finished = 0;
+                    for (VersusBench.Bot bot : bots) if (bot.step()) finished++;
+                }
+
+                int winners = 0;
+                for (VersusBench.Bot bot : bots) {
+                    VersusClient client = bot.client;
+                    assertNull(client.getError());
+                    assertEquals(0, client.getMismatches(), "replica mismatches for player " + client.getPlayer());
+                    if (client.getPlace() == 1) winners++;
+                    client.close();
+                }
+                assertTrue(winners <= 1, "more than one winner");
+                assertEquals(match, server.getMatchesFinished());
+            }
+            assertTrue(server.getMessagesRelayed() > 0);
+        }
+    }
+}